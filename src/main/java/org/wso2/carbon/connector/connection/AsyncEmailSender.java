@@ -0,0 +1,341 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
+import org.wso2.carbon.connector.utils.EmailConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import static java.lang.String.format;
+
+/**
+ * Sends emails in the background over the pooled connections of an SMTP connection, so that the mediation thread
+ * does not wait for the server.
+ * <p>
+ * Emails are queued in a bounded in-memory queue that is drained by dedicated sender threads. When the queue is full,
+ * the back-pressure policy of the connection either blocks the caller until there is space (BLOCK), rejects the email
+ * (REJECT) or writes the email to a temporary file to be sent once the queue has been drained (SPILL). Emails are
+ * rejected once the sender has been shut down.
+ */
+public class AsyncEmailSender {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncEmailSender.class);
+
+    private static final String THREAD_NAME = "email-sender-";
+    private static final String SPILL_FILE_PREFIX = "email-outbound-";
+    private static final String SPILL_FILE_SUFFIX = ".eml";
+    private static final long POLL_INTERVAL = 100L;
+
+    private final String connectionName;
+    private final EmailConnectionPool pool;
+    private final String backPressure;
+    private final BlockingQueue<OutboundEmail> queue;
+    private final Queue<OutboundEmail> spilled = new ConcurrentLinkedQueue<>();
+    private final DeliveryTracker tracker;
+    private final int threads;
+    // Held for reading while queueing an email and for writing while shutting down, so that no email is queued
+    // once the queue has been drained on shutdown
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ExecutorService executor;
+    private boolean shutdown;
+
+    AsyncEmailSender(ConnectionConfiguration connectionConfiguration, EmailConnectionPool pool,
+                     DeliveryTracker tracker) {
+
+        this.connectionName = connectionConfiguration.getConnectionName();
+        this.pool = pool;
+        this.backPressure = connectionConfiguration.getAsyncBackPressure();
+        this.queue = new ArrayBlockingQueue<>(connectionConfiguration.getAsyncQueueCapacity());
+        this.tracker = tracker;
+        this.threads = connectionConfiguration.getAsyncSenderThreads();
+    }
+
+    /**
+     * Queues an email to be sent
+     *
+     * @param message email to be sent
+     * @return tracking ID of the delivery
+     * @throws EmailConnectionException if the email was rejected or could not be spilled, or if the sender has been
+     *                                  shut down
+     */
+    public String submit(MimeMessage message) throws EmailConnectionException {
+
+        // Serialized right away, since the content of the attachments may no longer be readable once the mediation
+        // has completed
+        OutboundEmail email;
+        try {
+            message.saveChanges();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            message.writeTo(outputStream);
+            email = new OutboundEmail(UUID.randomUUID().toString(), outputStream.toByteArray());
+        } catch (IOException | MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while queueing email. %s", e.getMessage()),
+                    e);
+        }
+        lock.readLock().lock();
+        try {
+            if (shutdown) {
+                throw new EmailConnectionException(format("Email was rejected since the asynchronous sender of " +
+                        "connection: %s has been shut down.", connectionName));
+            }
+            start();
+            enqueue(email);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return email.trackingId;
+    }
+
+    /**
+     * Queues a serialized email according to the back-pressure policy
+     *
+     * @param email email to be queued
+     * @throws EmailConnectionException if the email was rejected or could not be spilled
+     */
+    private void enqueue(OutboundEmail email) throws EmailConnectionException {
+
+        tracker.setStatus(email.trackingId, DeliveryStatus.State.QUEUED, null);
+        try {
+            if (EmailConstants.BACK_PRESSURE_REJECT.equals(backPressure)) {
+                if (!queue.offer(email)) {
+                    throw new EmailConnectionException(format("Email was rejected since the outbound queue of " +
+                            "connection: %s is full.", connectionName));
+                }
+            } else if (EmailConstants.BACK_PRESSURE_SPILL.equals(backPressure)) {
+                // Once emails have been spilled, the following emails are spilled too, so that they are sent in order
+                if (!spilled.isEmpty() || !queue.offer(email)) {
+                    spill(email);
+                }
+            } else {
+                queue.put(email);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tracker.removeStatus(email.trackingId);
+            throw new EmailConnectionException("Interrupted while waiting for space in the outbound queue.", e);
+        } catch (EmailConnectionException e) {
+            tracker.removeStatus(email.trackingId);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the sender threads and rejects any further emails. Emails that have not been sent yet are discarded and
+     * their deliveries are marked as failed.
+     */
+    void shutdown() {
+
+        lock.writeLock().lock();
+        try {
+            shutdown = true;
+            if (executor == null) {
+                return;
+            }
+            executor.shutdownNow();
+            executor = null;
+            int pending = 0;
+            OutboundEmail email;
+            while ((email = queue.poll()) != null || (email = spilled.poll()) != null) {
+                deleteSpillFile(email.file);
+                tracker.setStatus(email.trackingId, DeliveryStatus.State.FAILED,
+                        "Email was discarded since the sender was shut down before it was sent.");
+                pending++;
+            }
+            if (pending > 0) {
+                log.warn(format("Discarded %d unsent email(s) of connection: %s.", pending, connectionName));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts the sender threads, if not started already. The threads are only started once the first email is
+     * submitted, since most connections never send asynchronously. Called while holding the read lock, hence never
+     * concurrently with a shutdown.
+     */
+    private synchronized void start() {
+
+        if (executor != null) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ClassLoader classLoader = javax.mail.Message.class.getClassLoader();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + connectionName + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::drain);
+        }
+        log.info(format("Started %d asynchronous sender thread(s) for connection: %s.", threads, connectionName));
+    }
+
+    /**
+     * Writes an email to a temporary file, to be read back when it is sent
+     *
+     * @param email email to be spilled
+     * @throws EmailConnectionException if failed to write the email
+     */
+    private void spill(OutboundEmail email) throws EmailConnectionException {
+
+        Path file = null;
+        try {
+            file = Files.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+            Files.write(file, email.content);
+        } catch (IOException e) {
+            deleteSpillFile(file);
+            throw new EmailConnectionException(format("Error occurred while spilling email to disk. %s",
+                    e.getMessage()), e);
+        }
+        email.file = file;
+        email.content = null;
+        tracker.setStatus(email.trackingId, DeliveryStatus.State.SPILLED, null);
+        spilled.add(email);
+    }
+
+    /**
+     * Sends queued emails until the sender is shut down
+     */
+    private void drain() {
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                OutboundEmail email = queue.poll();
+                if (email == null) {
+                    email = spilled.poll();
+                }
+                if (email == null) {
+                    email = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+                if (email != null) {
+                    deliver(email);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends an email over a pooled connection and records the outcome
+     *
+     * @param email email to be sent
+     */
+    private void deliver(OutboundEmail email) {
+
+        tracker.setStatus(email.trackingId, DeliveryStatus.State.SENDING, null);
+        SMTPConnection connection = null;
+        try {
+            connection = (SMTPConnection) pool.borrowObject();
+            // Headers were already updated when the email was serialized
+            if (email.file != null) {
+                connection.sendSavedMessage(readSpillFile(connection.getSession(), email.file));
+            } else {
+                connection.sendSavedMessage(new MimeMessage(connection.getSession(),
+                        new ByteArrayInputStream(email.content)));
+            }
+            tracker.setStatus(email.trackingId, DeliveryStatus.State.SENT, null);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Email: %s was sent successfully...", email.trackingId));
+            }
+        } catch (EmailConnectionPoolException | MessagingException | IOException e) {
+            log.error(format("Error occurred while sending email: %s. %s", email.trackingId, e.getMessage()), e);
+            tracker.setStatus(email.trackingId, DeliveryStatus.State.FAILED, e.getMessage());
+        } finally {
+            if (connection != null) {
+                pool.returnObject(connection);
+            }
+            deleteSpillFile(email.file);
+        }
+    }
+
+    /**
+     * Reads a spilled email
+     *
+     * @param session session of the connection the email is sent over
+     * @param file    file the email was spilled to
+     * @return email read
+     */
+    private MimeMessage readSpillFile(Session session, Path file) throws IOException, MessagingException {
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return new MimeMessage(session, inputStream);
+        }
+    }
+
+    /**
+     * Deletes the file an email was spilled to, if any
+     *
+     * @param file file to be deleted
+     */
+    private void deleteSpillFile(Path file) {
+
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error(format("Error occurred while deleting file: %s. %s", file, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Serialized email waiting to be sent, held either in memory or in a file
+     */
+    private static final class OutboundEmail {
+
+        private final String trackingId;
+        private byte[] content;
+        private Path file;
+
+        OutboundEmail(String trackingId, byte[] content) {
+
+            this.trackingId = trackingId;
+            this.content = content;
+        }
+    }
+}
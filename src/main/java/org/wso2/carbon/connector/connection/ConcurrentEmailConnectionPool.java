@@ -0,0 +1,311 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Connection Pool Implementation for Email Connections.
+ * <p>
+ * Idle connections are kept in a lock-free deque and the number of active connections is bounded by a semaphore,
+ * hence borrowing and returning connections does not serialize the callers on a common monitor. Validation of an
+ * idle connection is done by the borrowing thread after the connection has been taken out of the deque.
+ */
+public class ConcurrentEmailConnectionPool implements EmailConnectionPool {
+
+    private static final Log log = LogFactory.getLog(ConcurrentEmailConnectionPool.class);
+
+    private static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME = 30 * 60 * 1000L;
+
+    private final PoolableObjectFactory factory;
+    private final Deque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger numIdle = new AtomicInteger();
+    private final AtomicInteger numActive = new AtomicInteger();
+    private final Semaphore permits;
+    private final ExhaustedAction exhaustedAction;
+    private final int maxIdle;
+    private final long maxWait;
+    private final long minEvictableIdleTime;
+    private final ScheduledFuture<?> evictionTask;
+    private volatile boolean closed;
+
+    ConcurrentEmailConnectionPool(PoolableObjectFactory factory, ConnectionConfiguration connectionConfiguration) {
+
+        this.factory = factory;
+        this.exhaustedAction = ExhaustedAction.of(connectionConfiguration.getExhaustedAction());
+        int maxActive = connectionConfiguration.getMaxActiveConnections();
+        if (maxActive > 0 && exhaustedAction != ExhaustedAction.WHEN_EXHAUSTED_GROW) {
+            this.permits = new Semaphore(maxActive);
+        } else {
+            this.permits = null;
+        }
+        int maxIdleConnections = connectionConfiguration.getMaxIdleConnections();
+        this.maxIdle = maxIdleConnections < 0 ? Integer.MAX_VALUE : maxIdleConnections;
+        this.maxWait = connectionConfiguration.getMaxWaitTime();
+        this.minEvictableIdleTime = connectionConfiguration.getMinEvictionTime() > 0
+                ? connectionConfiguration.getMinEvictionTime() : DEFAULT_MIN_EVICTABLE_IDLE_TIME;
+        if (connectionConfiguration.getEvictionCheckInterval() > 0) {
+            this.evictionTask = EvictionTimer.schedule(this::evict,
+                    connectionConfiguration.getEvictionCheckInterval());
+        } else {
+            this.evictionTask = null;
+        }
+    }
+
+    @Override
+    public Object borrowObject() throws EmailConnectionPoolException {
+
+        log.debug("Borrowing object from the connection pool...");
+        if (closed) {
+            throw new EmailConnectionPoolException("Error occurred while borrowing connection from the pool. " +
+                    "Pool is closed.");
+        }
+        acquirePermit();
+        Object connection = null;
+        try {
+            connection = pollValidIdleConnection();
+            if (connection == null) {
+                connection = factory.makeObject();
+            }
+            factory.activateObject(connection);
+            numActive.incrementAndGet();
+            return connection;
+        } catch (Exception e) {
+            if (connection != null) {
+                destroy(connection);
+            }
+            releasePermit();
+            throw new EmailConnectionPoolException(format("Error occurred while borrowing connection from the pool. %s",
+                    e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void returnObject(Object obj) {
+
+        if (obj == null) {
+            return;
+        }
+        log.debug("Returning object to the connection pool...");
+        numActive.decrementAndGet();
+        try {
+            factory.passivateObject(obj);
+            addObject(obj);
+        } catch (Exception e) {
+            log.error(format("Error occurred while returning the connection to the pool. %s", e.getMessage()), e);
+            destroy(obj);
+        } finally {
+            releasePermit();
+        }
+    }
+
+    @Override
+    public void close() throws EmailConnectionPoolException {
+
+        closed = true;
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+        try {
+            clearIdleConnections();
+        } catch (Exception e) {
+            throw new EmailConnectionPoolException(format("Error occurred while closing the connections. %s",
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Adds a connection created outside the pool as an idle connection. The connection is destroyed if the pool is
+     * closed or already holds the maximum number of idle connections.
+     *
+     * @param connection connection to be added
+     */
+    void addObject(Object connection) {
+
+        if (closed) {
+            destroy(connection);
+        } else if (numIdle.incrementAndGet() > maxIdle) {
+            numIdle.decrementAndGet();
+            destroy(connection);
+        } else {
+            idleConnections.offerFirst(new IdleConnection(connection));
+            if (closed) {
+                clearIdleConnections();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of connections currently borrowed from the pool
+     *
+     * @return number of active connections
+     */
+    public int getNumActive() {
+
+        return numActive.get();
+    }
+
+    /**
+     * Gets the number of connections currently idling in the pool
+     *
+     * @return number of idle connections
+     */
+    public int getNumIdle() {
+
+        return numIdle.get();
+    }
+
+    /**
+     * Acquires a permit to hold an active connection according to the configured exhausted action
+     *
+     * @throws EmailConnectionPoolException if a permit could not be obtained
+     */
+    private void acquirePermit() throws EmailConnectionPoolException {
+
+        if (permits == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            if (exhaustedAction == ExhaustedAction.WHEN_EXHAUSTED_FAIL) {
+                acquired = permits.tryAcquire();
+            } else if (maxWait > 0) {
+                acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+            } else {
+                permits.acquire();
+                acquired = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailConnectionPoolException("Interrupted while waiting for a connection from the pool.", e);
+        }
+        if (!acquired) {
+            throw new EmailConnectionPoolException("Error occurred while borrowing connection from the pool. " +
+                    "Pool exhausted.");
+        }
+    }
+
+    /**
+     * Releases a permit acquired when borrowing a connection
+     */
+    private void releasePermit() {
+
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Takes idle connections out of the pool until a valid one is found. Invalid connections are destroyed.
+     *
+     * @return a valid idle connection or null if there are none
+     */
+    private Object pollValidIdleConnection() {
+
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            numIdle.decrementAndGet();
+            if (factory.validateObject(idleConnection.connection)) {
+                return idleConnection.connection;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Discarding invalid connection from the connection pool...");
+            }
+            destroy(idleConnection.connection);
+        }
+        return null;
+    }
+
+    /**
+     * Destroys connections that have been idling for longer than the minimum evictable idle time
+     */
+    private void evict() {
+
+        long now = System.currentTimeMillis();
+        // Connections are returned to the head of the deque, hence the oldest are at the tail
+        Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleConnection idleConnection = iterator.next();
+            if (now - idleConnection.idleSince < minEvictableIdleTime) {
+                break;
+            }
+            if (idleConnections.removeFirstOccurrence(idleConnection)) {
+                numIdle.decrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicting idle connection from the connection pool...");
+                }
+                destroy(idleConnection.connection);
+            }
+        }
+    }
+
+    /**
+     * Destroys all the idle connections
+     */
+    private void clearIdleConnections() {
+
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            numIdle.decrementAndGet();
+            destroy(idleConnection.connection);
+        }
+    }
+
+    /**
+     * Destroys a connection
+     *
+     * @param connection connection to be destroyed
+     */
+    private void destroy(Object connection) {
+
+        try {
+            factory.destroyObject(connection);
+        } catch (Exception e) {
+            log.error(format("Error occurred while destroying connection. %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Idle connection along with the time it was returned to the pool
+     */
+    private static final class IdleConnection {
+
+        private final Object connection;
+        private final long idleSince;
+
+        IdleConnection(Object connection) {
+
+            this.connection = connection;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the delivery status of the emails sent in the background over a connection
+ */
+public class DeliveryTracker {
+
+    // Statuses of the oldest deliveries are discarded beyond this limit
+    private static final int MAX_TRACKED_DELIVERIES = 10000;
+
+    private final Map<String, DeliveryStatus> statuses = new LinkedHashMap<String, DeliveryStatus>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeliveryStatus> eldest) {
+
+            return size() > MAX_TRACKED_DELIVERIES;
+        }
+    };
+
+    /**
+     * Gets the delivery status of an email
+     *
+     * @param trackingId tracking ID of the delivery
+     * @return delivery status, which is UNKNOWN if the ID is not or no longer tracked
+     */
+    public synchronized DeliveryStatus getStatus(String trackingId) {
+
+        DeliveryStatus status = statuses.get(trackingId);
+        return status != null ? status : new DeliveryStatus(DeliveryStatus.State.UNKNOWN, null);
+    }
+
+    synchronized void setStatus(String trackingId, DeliveryStatus.State state, String error) {
+
+        statuses.put(trackingId, new DeliveryStatus(state, error));
+    }
+
+    synchronized void removeStatus(String trackingId) {
+
+        statuses.remove(trackingId);
+    }
+}
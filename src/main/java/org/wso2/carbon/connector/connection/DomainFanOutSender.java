@@ -0,0 +1,367 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.connector.pojo.RecipientStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import static java.lang.String.format;
+
+/**
+ * Sends an email to its recipients grouped by domain, so that a slow receiving domain does not delay delivery to the
+ * other domains.
+ * <p>
+ * The recipients of each domain are sent the email in parallel over separate pooled connections. Each domain has its
+ * own lane, which limits the number of concurrent sends to the domain and, optionally, the rate of sends to it.
+ * Lanes of domains that are not being sent to are discarded, so that the lanes do not grow with every domain ever
+ * sent to.
+ */
+public class DomainFanOutSender {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainFanOutSender.class);
+
+    private static final String THREAD_NAME = "email-fan-out-";
+    private static final int MAX_THREADS = 32;
+    private static final String UNKNOWN_DOMAIN = "";
+
+    private final String connectionName;
+    private final int domainConcurrency;
+    // Minimum interval between sends to a domain in nanoseconds, or 0 if not limited
+    private final long sendInterval;
+    private final EmailConnectionPool pool;
+    private final Map<String, DomainLane> lanes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    DomainFanOutSender(ConnectionConfiguration connectionConfiguration, EmailConnectionPool pool) {
+
+        this.pool = pool;
+        this.domainConcurrency = connectionConfiguration.getDomainConcurrency();
+        double rateLimit = connectionConfiguration.getDomainRateLimit();
+        this.sendInterval = rateLimit > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rateLimit) : 0;
+        this.connectionName = connectionConfiguration.getConnectionName();
+        AtomicInteger threadCount = new AtomicInteger();
+        ClassLoader classLoader = javax.mail.Message.class.getClassLoader();
+        // Sends rejected since all the threads are busy are run by the calling thread
+        this.executor = new ThreadPoolExecutor(0, MAX_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_NAME + connectionName + "-"
+                            + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setContextClassLoader(classLoader);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Sends an email to all its recipients, grouped by domain
+     *
+     * @param message email to be sent
+     * @return outcome of the send for each recipient
+     * @throws MessagingException       if the email could not be prepared to be sent
+     * @throws EmailConnectionException if the sender has been shut down, or if interrupted while waiting for the
+     *                                  sends to complete
+     */
+    public List<RecipientStatus> send(MimeMessage message) throws MessagingException, EmailConnectionException {
+
+        // Serialized once, so that each domain is sent its own copy of the message and the content of the
+        // attachments is read only once
+        message.saveChanges();
+        byte[] content;
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            message.writeTo(outputStream);
+            content = outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new EmailConnectionException(format("Error occurred while preparing email to be sent. %s",
+                    e.getMessage()), e);
+        }
+        Map<String, List<Address>> recipientsByDomain = groupByDomain(message.getAllRecipients());
+        Map<String, Future<List<RecipientStatus>>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Address>> entry : recipientsByDomain.entrySet()) {
+            String domain = entry.getKey();
+            Address[] recipients = entry.getValue().toArray(new Address[0]);
+            results.put(domain, submit(() -> sendToDomain(domain, content, recipients)));
+        }
+        try {
+            return getStatuses(recipientsByDomain, results);
+        } finally {
+            removeIdleLanes();
+        }
+    }
+
+    /**
+     * Submits a send to a domain. If all the threads are busy, the send is run by the calling thread.
+     *
+     * @param send send to a domain
+     * @return pending outcome of the send
+     * @throws EmailConnectionException if the sender has been shut down
+     */
+    private Future<List<RecipientStatus>> submit(Callable<List<RecipientStatus>> send)
+            throws EmailConnectionException {
+
+        try {
+            return executor.submit(send);
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                throw new EmailConnectionException(format("Domain fan-out sender of connection: %s has been shut " +
+                        "down.", connectionName), e);
+            }
+            FutureTask<List<RecipientStatus>> task = new FutureTask<>(send);
+            task.run();
+            return task;
+        }
+    }
+
+    /**
+     * Waits for the sends to each domain to complete
+     *
+     * @param recipientsByDomain recipients of each domain
+     * @param results            pending outcome of the send to each domain
+     * @return outcome of the send for each recipient
+     * @throws EmailConnectionException if interrupted while waiting for the sends to complete
+     */
+    private List<RecipientStatus> getStatuses(Map<String, List<Address>> recipientsByDomain,
+                                              Map<String, Future<List<RecipientStatus>>> results)
+            throws EmailConnectionException {
+
+        List<RecipientStatus> statuses = new ArrayList<>();
+        for (Map.Entry<String, Future<List<RecipientStatus>>> result : results.entrySet()) {
+            try {
+                statuses.addAll(result.getValue().get());
+            } catch (ExecutionException e) {
+                for (Address recipient : recipientsByDomain.get(result.getKey())) {
+                    statuses.add(new RecipientStatus(recipient.toString(), false, e.getCause().getMessage()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmailConnectionException("Interrupted while waiting for the email to be sent.", e);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Stops the threads sending to the domains
+     */
+    void shutdown() {
+
+        executor.shutdownNow();
+    }
+
+    /**
+     * Discards the lanes of the domains that are not being sent to and are not within a rate limit interval
+     */
+    private void removeIdleLanes() {
+
+        long now = System.nanoTime();
+        for (String domain : lanes.keySet()) {
+            lanes.computeIfPresent(domain, (key, lane) -> lane.isIdle(now) ? null : lane);
+        }
+    }
+
+    /**
+     * Sends an email to the recipients of a domain over a pooled connection, within the limits of the domain
+     *
+     * @param domain     domain of the recipients
+     * @param content    serialized email to be sent
+     * @param recipients recipients of the domain
+     * @return outcome of the send for each recipient
+     */
+    private List<RecipientStatus> sendToDomain(String domain, byte[] content, Address[] recipients)
+            throws InterruptedException {
+
+        // The lane is held while sending, so that it is not discarded in the meantime
+        DomainLane lane = lanes.compute(domain, (key, existing) -> {
+            DomainLane held = existing != null ? existing : new DomainLane();
+            held.users++;
+            return held;
+        });
+        try {
+            lane.permits.acquire();
+        } catch (InterruptedException e) {
+            releaseLane(domain);
+            throw e;
+        }
+        try {
+            lane.awaitRate();
+            SMTPConnection connection = null;
+            try {
+                connection = (SMTPConnection) pool.borrowObject();
+                connection.sendSavedMessage(new MimeMessage(connection.getSession(),
+                        new ByteArrayInputStream(content)), recipients);
+                return getStatuses(recipients, null);
+            } catch (SendFailedException e) {
+                return getStatuses(recipients, e);
+            } catch (MessagingException | EmailConnectionPoolException e) {
+                log.error(format("Error occurred while sending email to %d recipient(s). %s", recipients.length,
+                        e.getMessage()), e);
+                List<RecipientStatus> statuses = new ArrayList<>();
+                for (Address recipient : recipients) {
+                    statuses.add(new RecipientStatus(recipient.toString(), false, e.getMessage()));
+                }
+                return statuses;
+            } finally {
+                if (connection != null) {
+                    pool.returnObject(connection);
+                }
+            }
+        } finally {
+            lane.permits.release();
+            releaseLane(domain);
+        }
+    }
+
+    /**
+     * Releases a lane held while sending to a domain
+     *
+     * @param domain domain of the lane
+     */
+    private void releaseLane(String domain) {
+
+        lanes.computeIfPresent(domain, (key, lane) -> {
+            lane.users--;
+            return lane;
+        });
+    }
+
+    /**
+     * Gets the outcome of a send for each recipient. If the send partially failed, only the addresses the server
+     * accepted are successful.
+     *
+     * @param recipients recipients the email was sent to
+     * @param failure    failure of the send, or null if it succeeded
+     * @return outcome for each recipient
+     */
+    private static List<RecipientStatus> getStatuses(Address[] recipients, SendFailedException failure) {
+
+        Set<Address> sent = new HashSet<>();
+        if (failure != null && failure.getValidSentAddresses() != null) {
+            for (Address address : failure.getValidSentAddresses()) {
+                sent.add(address);
+            }
+        }
+        List<RecipientStatus> statuses = new ArrayList<>();
+        for (Address recipient : recipients) {
+            if (failure == null || sent.contains(recipient)) {
+                statuses.add(new RecipientStatus(recipient.toString(), true, null));
+            } else {
+                statuses.add(new RecipientStatus(recipient.toString(), false, failure.getMessage()));
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Groups recipients by domain, keeping the order of the recipients
+     *
+     * @param recipients recipients of an email
+     * @return recipients by domain in lower case
+     * @throws SendFailedException if the email has no recipients
+     */
+    private static Map<String, List<Address>> groupByDomain(Address[] recipients) throws SendFailedException {
+
+        if (recipients == null || recipients.length == 0) {
+            throw new SendFailedException("No recipient addresses");
+        }
+        Map<String, List<Address>> recipientsByDomain = new LinkedHashMap<>();
+        for (Address recipient : recipients) {
+            String domain = UNKNOWN_DOMAIN;
+            if (recipient instanceof InternetAddress && ((InternetAddress) recipient).getAddress() != null) {
+                String address = ((InternetAddress) recipient).getAddress();
+                domain = address.substring(address.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+            }
+            recipientsByDomain.computeIfAbsent(domain, key -> new ArrayList<>()).add(recipient);
+        }
+        return recipientsByDomain;
+    }
+
+    /**
+     * Limits the concurrency and rate of the sends to a domain
+     */
+    private final class DomainLane {
+
+        private final Semaphore permits = new Semaphore(domainConcurrency, true);
+        private long nextSendTime = System.nanoTime();
+        // Number of sends holding the lane, only updated while computing the entry of the lane
+        private int users;
+
+        /**
+         * Checks whether the lane can be discarded without affecting the limits of the domain
+         *
+         * @param now current time in nanoseconds
+         * @return true if no send holds the lane and the rate limit interval of the last send has elapsed
+         */
+        boolean isIdle(long now) {
+
+            synchronized (this) {
+                return users == 0 && nextSendTime - now <= 0;
+            }
+        }
+
+        /**
+         * Waits until the next send to the domain is within the rate limit
+         */
+        void awaitRate() throws InterruptedException {
+
+            if (sendInterval <= 0) {
+                return;
+            }
+            long delay;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long sendTime = Math.max(now, nextSendTime);
+                nextSendTime = sendTime + sendInterval;
+                delay = sendTime - now;
+            }
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+        }
+    }
+}
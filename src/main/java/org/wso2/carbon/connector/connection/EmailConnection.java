@@ -26,6 +26,7 @@ public class EmailConnection {
                 connectionConfiguration.getPort());
         sessionProperties.putAll(setTimeouts(connectionConfiguration.getReadTimeout(),
                 connectionConfiguration.getWriteTimeout(), connectionConfiguration.getConnectionTimeout()));
+        sessionProperties.putAll(setFetchSize(connectionConfiguration.getFetchSize()));
 
         if (protocol.isSecure()) {
             sessionProperties.putAll(setSecureProperties(connectionConfiguration));
@@ -130,6 +131,23 @@ public class EmailConnection {
         return props;
     }
 
+    /**
+     * Sets the size of the chunks in which message content is fetched, which bounds the memory used when the
+     * content is streamed. Only applicable to IMAP.
+     *
+     * @param fetchSize Fetch size in bytes
+     * @return fetch properties
+     */
+    private Properties setFetchSize(String fetchSize) {
+
+        Properties props = new Properties();
+        if (fetchSize != null && EmailProtocol.IMAP.getName().equals(protocol.getName())) {
+            props.setProperty(protocol.getPartialFetchProperty(), TRUE);
+            props.setProperty(protocol.getFetchSizeProperty(), fetchSize);
+        }
+        return props;
+    }
+
     /**
      * Replace a comma in a comma separated string with whitespace
      *
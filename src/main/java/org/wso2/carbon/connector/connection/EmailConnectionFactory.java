@@ -27,15 +27,27 @@ import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
 public class EmailConnectionFactory implements PoolableObjectFactory {
 
     private ConnectionConfiguration connectionConfiguration;
+    // Shared by all the connections created by the factory, i.e. all the connections of the pool
+    private final MessageIDIndex messageIDIndex = new MessageIDIndex();
+    private final ExpungeCoalescer expungeCoalescer;
 
-    public EmailConnectionFactory(ConnectionConfiguration connectionConfiguration) {
+    /**
+     * Creates a factory of mailbox connections
+     *
+     * @param connectionConfiguration connection configuration
+     * @param expungeCoalescer        coalescer of the expunges of the connections, or null if expunges are not
+     *                                deferred
+     */
+    public EmailConnectionFactory(ConnectionConfiguration connectionConfiguration,
+                                  ExpungeCoalescer expungeCoalescer) {
 
         this.connectionConfiguration = connectionConfiguration;
+        this.expungeCoalescer = expungeCoalescer;
     }
 
     @Override
     public MailBoxConnection makeObject() throws EmailConnectionException {
-        return new MailBoxConnection(connectionConfiguration);
+        return new MailBoxConnection(connectionConfiguration, messageIDIndex, expungeCoalescer);
     }
 
     @Override
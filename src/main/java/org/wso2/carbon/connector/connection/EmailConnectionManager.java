@@ -2,13 +2,22 @@ package org.wso2.carbon.connector.connection;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.PoolableObjectFactory;
 import org.wso2.carbon.connector.exception.EmailConnectionException;
 import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.connector.utils.EmailConstants;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.mail.Folder;
 
 import static java.lang.String.format;
 
@@ -19,14 +28,27 @@ public class EmailConnectionManager {
 
     private static final Log log = LogFactory.getLog(EmailConnectionManager.class);
 
+    private static final int MAX_WARM_UP_THREADS = 8;
+    private static final String WARM_UP_THREAD_NAME = "email-connection-warm-up-";
+
     private Map<String, EmailConnection> connectionMap;
     private Map<String, EmailConnectionPool> connectionPoolMap;
+    private Map<String, AsyncEmailSender> asyncSenderMap;
+    private Map<String, EmailSpool> spoolMap;
+    private Map<String, DomainFanOutSender> fanOutSenderMap;
+    private Map<String, DeliveryTracker> deliveryTrackerMap;
+    private Map<String, ExpungeCoalescer> expungeCoalescerMap;
 
     private static EmailConnectionManager manager;
 
     private EmailConnectionManager(){
-        this.connectionMap = Collections.synchronizedMap(new HashMap<>());
-        this.connectionPoolMap = Collections.synchronizedMap(new HashMap<>());
+        this.connectionMap = new ConcurrentHashMap<>();
+        this.connectionPoolMap = new ConcurrentHashMap<>();
+        this.asyncSenderMap = new ConcurrentHashMap<>();
+        this.spoolMap = new ConcurrentHashMap<>();
+        this.fanOutSenderMap = new ConcurrentHashMap<>();
+        this.deliveryTrackerMap = new ConcurrentHashMap<>();
+        this.expungeCoalescerMap = new ConcurrentHashMap<>();
     }
 
     /**
@@ -62,8 +84,9 @@ public class EmailConnectionManager {
      * @throws EmailConnectionException if connection from the name does not exist
      */
     public EmailConnection getConnection(String name) throws EmailConnectionException {
-        if (connectionMap.get(name) != null) {
-            return connectionMap.get(name);
+        EmailConnection connection = connectionMap.get(name);
+        if (connection != null) {
+            return connection;
         }
         throw new EmailConnectionException(format("Connection with the name %s has not been initialized.", name));
     }
@@ -89,15 +112,80 @@ public class EmailConnectionManager {
      * @throws EmailConnectionException if connection pool from the name does not exist
      */
     public EmailConnectionPool getConnectionPool(String name) throws EmailConnectionException {
-        if (connectionPoolMap.get(name) != null){
+        EmailConnectionPool pool = connectionPoolMap.get(name);
+        if (pool != null){
             if (log.isDebugEnabled()){
                 log.debug(format("Returning connection pool for connection: %s", name));
             }
-            return connectionPoolMap.get(name);
+            return pool;
         }
         throw new EmailConnectionException(format("Connection with the name %s has not been initialized.", name));
     }
 
+    /**
+     * Retrieves the asynchronous sender of an SMTP connection by name
+     *
+     * @param name name of the connection
+     * @return Asynchronous email sender
+     * @throws EmailConnectionException if an SMTP connection from the name does not exist
+     */
+    public AsyncEmailSender getAsyncEmailSender(String name) throws EmailConnectionException {
+        AsyncEmailSender sender = asyncSenderMap.get(name);
+        if (sender != null) {
+            return sender;
+        }
+        throw new EmailConnectionException(format("SMTP connection with the name %s has not been initialized.",
+                name));
+    }
+
+    /**
+     * Retrieves the spool of an SMTP connection by name
+     *
+     * @param name name of the connection
+     * @return Email spool
+     * @throws InvalidConfigurationException if a spool is not configured for the connection
+     */
+    public EmailSpool getEmailSpool(String name) throws InvalidConfigurationException {
+        EmailSpool spool = spoolMap.get(name);
+        if (spool != null) {
+            return spool;
+        }
+        throw new InvalidConfigurationException(format("Spool is not configured for connection %s. Set the " +
+                "'spoolDirectory' parameter of the connection to spool emails.", name));
+    }
+
+    /**
+     * Retrieves the sender of an SMTP connection that sends emails to each recipient domain in parallel by name
+     *
+     * @param name name of the connection
+     * @return Domain fan-out sender
+     * @throws EmailConnectionException if an SMTP connection from the name does not exist
+     */
+    public DomainFanOutSender getDomainFanOutSender(String name) throws EmailConnectionException {
+        DomainFanOutSender sender = fanOutSenderMap.get(name);
+        if (sender != null) {
+            return sender;
+        }
+        throw new EmailConnectionException(format("SMTP connection with the name %s has not been initialized.",
+                name));
+    }
+
+    /**
+     * Retrieves the tracker of the emails sent in the background over an SMTP connection by name
+     *
+     * @param name name of the connection
+     * @return Delivery tracker
+     * @throws EmailConnectionException if an SMTP connection from the name does not exist
+     */
+    public DeliveryTracker getDeliveryTracker(String name) throws EmailConnectionException {
+        DeliveryTracker tracker = deliveryTrackerMap.get(name);
+        if (tracker != null) {
+            return tracker;
+        }
+        throw new EmailConnectionException(format("SMTP connection with the name %s has not been initialized.",
+                name));
+    }
+
     /**
      * Creates a connection with the given configuration
      *
@@ -105,33 +193,168 @@ public class EmailConnectionManager {
      */
     public synchronized void createConnection(ConnectionConfiguration connectionConfiguration) {
         String connectionName = connectionConfiguration.getConnectionName();
-        if (connectionConfiguration.getProtocol().getName().equalsIgnoreCase(EmailProtocol.SMTP.name())
-                && connectionMap.get(connectionName) == null){
-            // For SMTP protocols a connection pool is not required as they require only a session, which need not be
-            // manipulated as the connection.
-            EmailConnection connection = new EmailConnection(connectionConfiguration);
-            addConnection(connectionConfiguration.getConnectionName(), connection);
-        } else if (!connectionConfiguration.getProtocol().getName().equalsIgnoreCase(EmailProtocol.SMTP.name())
-                && connectionPoolMap.get(connectionName) == null) {
+        if (connectionPoolMap.get(connectionName) != null) {
+            if (log.isDebugEnabled()){
+                log.debug(format("Connection: %s exists", connectionName));
+            }
+            return;
+        }
+        PoolableObjectFactory factory;
+        ExpungeCoalescer expungeCoalescer = null;
+        if (connectionConfiguration.getProtocol().getName().equalsIgnoreCase(EmailProtocol.SMTP.name())) {
+            // For SMTP protocols, authenticated transports are pooled so that messages can be sent without
+            // connecting, negotiating TLS and logging in to the server for each message.
+            addConnection(connectionName, new EmailConnection(connectionConfiguration));
+            factory = new SMTPConnectionFactory(connectionConfiguration);
+        } else {
             // For other protocols, such as IMAP and POP3, connections to a store and folder is made which requires to
             // handled. Hence, for these instances, we will create a connection pool to optimize the use of these
             // connections.
-            EmailConnectionPool pool = new EmailConnectionPool(new EmailConnectionFactory(connectionConfiguration),
-                    connectionConfiguration);
-            addConnectionPool(connectionConfiguration.getConnectionName(), pool);
+            if (connectionConfiguration.isDeferredExpunge()) {
+                expungeCoalescer = new ExpungeCoalescer(connectionConfiguration);
+            }
+            factory = new EmailConnectionFactory(connectionConfiguration, expungeCoalescer);
+        }
+        EmailConnectionPool pool;
+        if (connectionConfiguration.getDisablePooling()) {
+            // Connections are created on demand and are not kept idle, which suits infrequently used connections
+            pool = new PassThroughEmailConnectionPool(factory, connectionConfiguration);
         } else {
-            if (log.isDebugEnabled()){
-                log.debug(format("Connection: %s exists", connectionName));
+            ConcurrentEmailConnectionPool concurrentPool = new ConcurrentEmailConnectionPool(factory,
+                    connectionConfiguration);
+            if (EmailConstants.INITIALISATION_POLICY_EAGER.equalsIgnoreCase(
+                    connectionConfiguration.getInitialisationPolicy())) {
+                warmUpConnectionPool(concurrentPool, factory, connectionConfiguration);
             }
+            pool = concurrentPool;
+        }
+        addConnectionPool(connectionName, pool);
+        if (expungeCoalescer != null) {
+            expungeCoalescer.setConnectionPool(pool);
+            expungeCoalescerMap.putIfAbsent(connectionName, expungeCoalescer);
+        }
+        if (factory instanceof SMTPConnectionFactory) {
+            DeliveryTracker tracker = new DeliveryTracker();
+            deliveryTrackerMap.putIfAbsent(connectionName, tracker);
+            asyncSenderMap.putIfAbsent(connectionName, new AsyncEmailSender(connectionConfiguration, pool, tracker));
+            fanOutSenderMap.putIfAbsent(connectionName, new DomainFanOutSender(connectionConfiguration, pool));
+            if (connectionConfiguration.getSpoolDirectory() != null) {
+                createSpool(connectionConfiguration, pool, tracker);
+            }
+        }
+    }
+
+    /**
+     * Creates the spool of an SMTP connection, which starts sending the emails left in the spool right away
+     *
+     * @param connectionConfiguration connection configuration
+     * @param pool                    connection pool the emails are sent over
+     * @param tracker                 tracker of the deliveries
+     */
+    private void createSpool(ConnectionConfiguration connectionConfiguration, EmailConnectionPool pool,
+                             DeliveryTracker tracker) {
+
+        EmailSpool spool = new EmailSpool(connectionConfiguration, pool, tracker);
+        try {
+            spool.start();
+            spoolMap.putIfAbsent(connectionConfiguration.getConnectionName(), spool);
+        } catch (EmailConnectionException e) {
+            log.error(format("Failed to start email spool of connection: %s. %s",
+                    connectionConfiguration.getConnectionName(), e.getMessage()), e);
         }
     }
 
+    /**
+     * Opens the maximum number of idle connections in parallel and adds them to the pool, so that the first
+     * operations do not have to pay the cost of connecting and logging in to the store.
+     *
+     * @param pool                    connection pool to be warmed up
+     * @param factory                 factory creating the connections
+     * @param connectionConfiguration connection configuration
+     */
+    private void warmUpConnectionPool(ConcurrentEmailConnectionPool pool, PoolableObjectFactory factory,
+                                      ConnectionConfiguration connectionConfiguration) {
+
+        String connectionName = connectionConfiguration.getConnectionName();
+        int size = connectionConfiguration.getMaxIdleConnections();
+        if (size <= 0) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(size, MAX_WARM_UP_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, WARM_UP_THREAD_NAME + connectionName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Object>> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                connections.add(executor.submit(() -> openConnection(factory)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int opened = 0;
+        for (Future<Object> connection : connections) {
+            try {
+                pool.addObject(connection.get());
+                opened++;
+            } catch (ExecutionException e) {
+                log.warn(format("Failed to open connection while warming up connection pool for %s. %s",
+                        connectionName, e.getCause().getMessage()), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn(format("Interrupted while warming up connection pool for %s.", connectionName));
+                break;
+            }
+        }
+        log.info(format("Warmed up %d of %d connection(s) for connection: %s in %d ms.", opened, size,
+                connectionName, System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Opens a connection. For mailbox connections, the default folder is selected as well.
+     *
+     * @param factory factory creating the connections
+     * @return opened connection
+     * @throws Exception if failed to connect to the server
+     */
+    private Object openConnection(PoolableObjectFactory factory) throws Exception {
+
+        Object connection = factory.makeObject();
+        if (connection instanceof MailBoxConnection) {
+            try {
+                ((MailBoxConnection) connection).getFolder(EmailConstants.DEFAULT_FOLDER, Folder.READ_ONLY);
+            } catch (EmailConnectionException e) {
+                // The connection is still usable even if the default folder could not be selected
+                if (log.isDebugEnabled()) {
+                    log.debug(format("Failed to select default folder while warming up connection. %s",
+                            e.getMessage()));
+                }
+            }
+        }
+        return connection;
+    }
+
     /**
      * Clears connection pools
      *
      */
     public void clearConnectionPools(){
         log.debug("Clearing connection pools...");
+        for (AsyncEmailSender sender : asyncSenderMap.values()) {
+            sender.shutdown();
+        }
+        for (EmailSpool spool : spoolMap.values()) {
+            spool.shutdown();
+        }
+        for (DomainFanOutSender sender : fanOutSenderMap.values()) {
+            sender.shutdown();
+        }
+        // Pending expunges are flushed before the pools are closed
+        for (ExpungeCoalescer coalescer : expungeCoalescerMap.values()) {
+            coalescer.shutdown();
+        }
         for (Map.Entry<String, EmailConnectionPool> pool : connectionPoolMap.entrySet()){
             try {
                 pool.getValue().close();
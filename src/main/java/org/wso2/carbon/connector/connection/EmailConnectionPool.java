@@ -17,99 +17,32 @@
  */
 package org.wso2.carbon.connector.connection;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.apache.commons.pool.impl.GenericObjectPool;
 import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
-import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
-
-import static java.lang.String.format;
 
 /**
- * Connection Pool Implementation for Email Connections
+ * Connection Pool for Email Connections
  */
-public class EmailConnectionPool extends GenericObjectPool {
-
-    private static final Log log = LogFactory.getLog(EmailConnectionPool.class);
-
-    EmailConnectionPool(EmailConnectionFactory objFactory, ConnectionConfiguration connectionConfiguration) {
-
-        super(objFactory);
-        this.setMaxActive(connectionConfiguration.getMaxActiveConnections());
-        this.setMaxIdle(connectionConfiguration.getMaxIdleConnections());
-        if (connectionConfiguration.getMaxWaitTime() > 0) {
-            this.setMaxWait(connectionConfiguration.getMaxWaitTime());
-        }
-        if (connectionConfiguration.getMinEvictionTime() > 0) {
-            this.setMinEvictableIdleTimeMillis(connectionConfiguration.getMinEvictionTime());
-        }
-        if (connectionConfiguration.getEvictionCheckInterval() > 0) {
-            this.setTimeBetweenEvictionRunsMillis(connectionConfiguration.getEvictionCheckInterval());
-        }
-        if (connectionConfiguration.getExhaustedAction() != null) {
-            this.setWhenExhaustedAction(getExhaustedAction(connectionConfiguration.getExhaustedAction()));
-        }
-        this.setTestOnBorrow(true);
-    }
+public interface EmailConnectionPool {
 
     /**
-     * Parse exhausted action from string
+     * Borrows a connection from the pool
      *
-     * @param exhaustedAction exhausted action in string
-     * @return respective byte that represents the action
+     * @return connection borrowed from the pool
+     * @throws EmailConnectionPoolException if a connection could not be obtained
      */
-    private byte getExhaustedAction(String exhaustedAction) {
-
-        byte action;
-        switch (exhaustedAction) {
-            case "WHEN_EXHAUSTED_FAIL":
-                action = WHEN_EXHAUSTED_FAIL;
-                break;
-            case "WHEN_EXHAUSTED_BLOCK":
-                action = WHEN_EXHAUSTED_BLOCK;
-                break;
-            case "WHEN_EXHAUSTED_GROW":
-                action = WHEN_EXHAUSTED_GROW;
-                break;
-            default:
-                action = DEFAULT_WHEN_EXHAUSTED_ACTION;
-                log.warn(format("Unable to find the configured exhausted action. Setting to default: %s.", action));
-                break;
-        }
-        return action;
-    }
-
-    @Override
-    public synchronized Object borrowObject() throws EmailConnectionPoolException {
-
-        try {
-            log.debug("Borrowing object from the connection pool...");
-            return super.borrowObject();
-        } catch (Exception e) {
-            throw new EmailConnectionPoolException(format("Error occurred while borrowing connection from the pool. %s",
-                    e.getMessage()), e);
-        }
-    }
-
-    @Override
-    public synchronized void returnObject(Object obj) {
+    Object borrowObject() throws EmailConnectionPoolException;
 
-        try {
-            log.debug("Returning object to the connection pool...");
-            super.returnObject(obj);
-        } catch (Exception e) {
-            log.error(format("Error occurred while returning the connection to the pool. %s", e.getMessage()), e);
-        }
-    }
-
-    @Override
-    public synchronized void close() throws EmailConnectionPoolException {
+    /**
+     * Returns a borrowed connection to the pool
+     *
+     * @param obj connection to be returned
+     */
+    void returnObject(Object obj);
 
-        try {
-            super.close();
-        } catch (Exception e) {
-            throw new EmailConnectionPoolException(format("Error occurred while closing the connections. %s",
-                    e.getMessage()), e);
-        }
-    }
+    /**
+     * Closes the pool and all the idle connections held by it
+     *
+     * @throws EmailConnectionPoolException if failed to close the connections
+     */
+    void close() throws EmailConnectionPoolException;
 }
@@ -218,6 +218,26 @@ public enum EmailProtocol {
         return unmaskProperty(EmailConfigProperties.PROPERTY_CHECK_SERVER_IDENTITY);
     }
 
+    /**
+     * Size in bytes of the chunks in which message content is fetched from an IMAP server. Default is 16K.
+     *
+     * @return the fetch size property.
+     */
+    public String getFetchSizeProperty() {
+
+        return unmaskProperty(EmailConfigProperties.PROPERTY_FETCH_SIZE);
+    }
+
+    /**
+     * Indicates if message content is fetched from an IMAP server in chunks. Default is true.
+     *
+     * @return the partial fetch property.
+     */
+    public String getPartialFetchProperty() {
+
+        return unmaskProperty(EmailConfigProperties.PROPERTY_PARTIAL_FETCH);
+    }
+
     private String unmaskProperty(String property) {
 
         return format(property, name);
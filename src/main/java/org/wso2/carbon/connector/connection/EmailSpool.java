@@ -0,0 +1,724 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import static java.lang.String.format;
+
+/**
+ * Durable local spool of outbound emails of an SMTP connection.
+ * <p>
+ * Emails are appended to segment files on disk and synced before they are accepted, hence are not lost if the relay
+ * is unavailable or the server crashes. Background dispatcher threads send the spooled emails, retrying failed
+ * deliveries with exponential backoff. Emails to the same recipient domain are sent in the order they were spooled,
+ * and a domain that is being retried does not hold back the other domains. Waiting for a pooled connection is not
+ * counted as a delivery attempt.
+ * <p>
+ * Each delivered or abandoned email is recorded in the acknowledgement file of its segment. Once all the emails of a
+ * segment have been acknowledged, the segment is deleted. Unacknowledged emails are recovered when the spool starts.
+ */
+public class EmailSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailSpool.class);
+
+    private static final String THREAD_NAME = "email-spool-";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String ACK_SUFFIX = ".ack";
+    // Length and checksum of the record
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String UNKNOWN_DOMAIN = "";
+
+    private final String connectionName;
+    private final EmailConnectionPool pool;
+    private final DeliveryTracker tracker;
+    private final Path directory;
+    private final long segmentSize;
+    private final long retryInterval;
+    private final long maxRetryInterval;
+    private final int maxRetries;
+    private final int threads;
+    private final Map<String, DomainLane> lanes = new ConcurrentHashMap<>();
+    private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+    private Segment activeSegment;
+    private long nextSegmentId;
+    private ScheduledExecutorService dispatcher;
+
+    EmailSpool(ConnectionConfiguration connectionConfiguration, EmailConnectionPool pool, DeliveryTracker tracker) {
+
+        this.connectionName = connectionConfiguration.getConnectionName();
+        this.pool = pool;
+        this.tracker = tracker;
+        this.directory = Paths.get(connectionConfiguration.getSpoolDirectory(), connectionName);
+        this.segmentSize = connectionConfiguration.getSpoolSegmentSize();
+        this.retryInterval = connectionConfiguration.getSpoolRetryInterval();
+        this.maxRetryInterval = connectionConfiguration.getSpoolMaxRetryInterval();
+        this.maxRetries = connectionConfiguration.getSpoolMaxRetries();
+        this.threads = connectionConfiguration.getAsyncSenderThreads();
+    }
+
+    /**
+     * Recovers the emails left in the spool and starts dispatching them
+     *
+     * @throws EmailConnectionException if failed to read the spool directory
+     */
+    synchronized void start() throws EmailConnectionException {
+
+        if (dispatcher != null) {
+            return;
+        }
+        int recovered;
+        try {
+            Files.createDirectories(directory);
+            recovered = recover();
+        } catch (IOException e) {
+            throw new EmailConnectionException(format("Error occurred while recovering email spool: %s. %s",
+                    directory, e.getMessage()), e);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ClassLoader classLoader = javax.mail.Message.class.getClassLoader();
+        dispatcher = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + connectionName + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        for (DomainLane lane : lanes.values()) {
+            schedule(lane, 0);
+        }
+        log.info(format("Started email spool: %s with %d recovered email(s).", directory, recovered));
+    }
+
+    /**
+     * Writes an email to the spool to be sent in the background
+     *
+     * @param message email to be sent
+     * @return tracking ID of the delivery
+     * @throws EmailConnectionException if failed to write the email to the spool
+     */
+    public String submit(MimeMessage message) throws EmailConnectionException {
+
+        String trackingId = UUID.randomUUID().toString();
+        String domain;
+        byte[] record;
+        try {
+            message.saveChanges();
+            domain = getDomain(message);
+            record = encodeRecord(trackingId, domain, message);
+        } catch (IOException | MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while writing the email to the spool. %s",
+                    e.getMessage()), e);
+        }
+        DomainLane lane = lanes.computeIfAbsent(domain, DomainLane::new);
+        synchronized (this) {
+            if (dispatcher == null) {
+                throw new EmailConnectionException(format("Email spool of connection: %s is not running.",
+                        connectionName));
+            }
+            SpooledEmail email;
+            try {
+                email = append(trackingId, record);
+            } catch (IOException e) {
+                throw new EmailConnectionException(format("Error occurred while writing the email to the spool. " +
+                        "%s", e.getMessage()), e);
+            }
+            tracker.setStatus(trackingId, DeliveryStatus.State.SPOOLED, null);
+            // Queued while holding the spool lock, so that emails to a domain are queued in the order spooled
+            synchronized (lane) {
+                lane.emails.add(email);
+            }
+        }
+        schedule(lane, 0);
+        return trackingId;
+    }
+
+    /**
+     * Stops dispatching emails. Emails that have not been sent remain in the spool.
+     */
+    synchronized void shutdown() {
+
+        if (dispatcher == null) {
+            return;
+        }
+        dispatcher.shutdownNow();
+        dispatcher = null;
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Reads the emails that have not been acknowledged from the segment files
+     *
+     * @return number of emails recovered
+     */
+    private int recover() throws IOException {
+
+        List<Long> segmentIds = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segmentIds.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn(format("Ignoring unknown file in email spool: %s", file));
+                }
+            }
+        }
+        Collections.sort(segmentIds);
+        int recovered = 0;
+        for (long segmentId : segmentIds) {
+            Segment segment = new Segment(segmentId);
+            segments.put(segmentId, segment);
+            nextSegmentId = segmentId + 1;
+            Set<Long> acknowledged = segment.readAcknowledgements();
+            long offset = 0;
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(segment.file)))) {
+                RecordHeader header;
+                while ((header = readRecord(input)) != null) {
+                    if (!acknowledged.contains(offset)) {
+                        SpooledEmail email = new SpooledEmail(header.trackingId, segment, offset);
+                        segment.pending++;
+                        lanes.computeIfAbsent(header.domain, DomainLane::new).emails.add(email);
+                        tracker.setStatus(header.trackingId, DeliveryStatus.State.SPOOLED, null);
+                        recovered++;
+                    }
+                    offset += RECORD_HEADER_SIZE + header.length;
+                }
+            }
+            segment.truncate(offset);
+            compact(segment);
+        }
+        return recovered;
+    }
+
+    /**
+     * Appends a record to the active segment, rolling over to a new segment if the active segment is full
+     *
+     * @param trackingId tracking ID of the email
+     * @param record     encoded record of the email
+     * @return spooled email
+     */
+    private SpooledEmail append(String trackingId, byte[] record) throws IOException {
+
+        if (activeSegment != null && activeSegment.size >= segmentSize) {
+            Segment previous = activeSegment;
+            activeSegment = null;
+            previous.closeWriter();
+            compact(previous);
+        }
+        if (activeSegment == null) {
+            activeSegment = new Segment(nextSegmentId++);
+            activeSegment.openWriter();
+            segments.put(activeSegment.id, activeSegment);
+        }
+        return activeSegment.append(trackingId, record);
+    }
+
+    /**
+     * Schedules sending the next email of a domain, unless it is already scheduled
+     *
+     * @param lane  emails of the domain
+     * @param delay delay in milliseconds
+     */
+    private void schedule(DomainLane lane, long delay) {
+
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = dispatcher;
+        }
+        if (executor == null) {
+            return;
+        }
+        synchronized (lane) {
+            if (lane.scheduled || lane.emails.isEmpty()) {
+                return;
+            }
+            lane.scheduled = true;
+        }
+        executor.schedule(() -> dispatch(lane), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the next email of a domain. Only one email of a domain is sent at a time, so that emails to a domain
+     * are delivered in order.
+     *
+     * @param lane emails of the domain
+     */
+    private void dispatch(DomainLane lane) {
+
+        SpooledEmail email;
+        synchronized (lane) {
+            email = lane.emails.peek();
+        }
+        long delay = 0;
+        try {
+            if (email == null) {
+                return;
+            }
+            tracker.setStatus(email.trackingId, DeliveryStatus.State.SENDING, null);
+            try {
+                send(email);
+                complete(lane, email, DeliveryStatus.State.SENT, null);
+            } catch (IOException e) {
+                log.error(format("Discarding unreadable email: %s from spool. %s", email.trackingId,
+                        e.getMessage()), e);
+                complete(lane, email, DeliveryStatus.State.FAILED, e.getMessage());
+            } catch (EmailConnectionPoolException e) {
+                // No connection could be obtained, hence the email was not attempted
+                email.deferrals++;
+                delay = getRetryDelay(email.deferrals);
+                log.warn(format("Unable to obtain a connection to send email: %s to domain: %s. Retrying in %d ms. " +
+                        "%s", email.trackingId, lane.domain, delay, e.getMessage()));
+                tracker.setStatus(email.trackingId, DeliveryStatus.State.SPOOLED, e.getMessage());
+            } catch (MessagingException | RuntimeException e) {
+                email.attempts++;
+                if (isPermanentFailure(e) || (maxRetries >= 0 && email.attempts > maxRetries)) {
+                    log.error(format("Failed to send email: %s after %d attempt(s). %s", email.trackingId,
+                            email.attempts, e.getMessage()), e);
+                    complete(lane, email, DeliveryStatus.State.FAILED, e.getMessage());
+                } else {
+                    delay = getRetryDelay(email.attempts);
+                    log.warn(format("Failed to send email: %s to domain: %s. Retrying in %d ms. %s",
+                            email.trackingId, lane.domain, delay, e.getMessage()));
+                    tracker.setStatus(email.trackingId, DeliveryStatus.State.SPOOLED, e.getMessage());
+                }
+            }
+        } finally {
+            synchronized (lane) {
+                lane.scheduled = false;
+            }
+            schedule(lane, delay);
+        }
+    }
+
+    /**
+     * Gets the delay before retrying an email, which doubles with each failure up to the maximum retry interval
+     *
+     * @param failures number of times the email could not be sent
+     * @return delay in milliseconds
+     */
+    private long getRetryDelay(int failures) {
+
+        return Math.min(retryInterval << Math.min(failures - 1, 30), maxRetryInterval);
+    }
+
+    /**
+     * Reads an email from its segment and sends it over a pooled connection
+     *
+     * @param email email to be sent
+     */
+    private void send(SpooledEmail email) throws IOException, MessagingException, EmailConnectionPoolException {
+
+        byte[] content = email.segment.read(email.offset);
+        SMTPConnection connection = (SMTPConnection) pool.borrowObject();
+        try {
+            connection.sendSavedMessage(new MimeMessage(connection.getSession(), new ByteArrayInputStream(content)));
+        } finally {
+            pool.returnObject(connection);
+        }
+    }
+
+    /**
+     * Acknowledges an email that will not be sent again and removes it from its domain
+     *
+     * @param lane   emails of the domain
+     * @param email  email to be acknowledged
+     * @param state  final delivery state
+     * @param error  error, if the delivery failed
+     */
+    private void complete(DomainLane lane, SpooledEmail email, DeliveryStatus.State state, String error) {
+
+        try {
+            email.segment.acknowledge(email.offset);
+        } catch (IOException e) {
+            // The email will be sent again if the spool is recovered
+            log.error(format("Error occurred while acknowledging email: %s in spool. %s", email.trackingId,
+                    e.getMessage()), e);
+        }
+        synchronized (lane) {
+            lane.emails.poll();
+        }
+        tracker.setStatus(email.trackingId, state, error);
+        synchronized (this) {
+            email.segment.pending--;
+            compact(email.segment);
+        }
+    }
+
+    /**
+     * Deletes a segment once all of its emails have been acknowledged, unless emails are still being appended to it
+     *
+     * @param segment segment to be compacted
+     */
+    private synchronized void compact(Segment segment) {
+
+        if (segment.pending > 0 || segment == activeSegment) {
+            return;
+        }
+        segments.remove(segment.id);
+        segment.close();
+        try {
+            Files.deleteIfExists(segment.ackFile);
+            Files.deleteIfExists(segment.file);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Deleted delivered spool segment: %s", segment.file));
+            }
+        } catch (IOException e) {
+            log.error(format("Error occurred while deleting spool segment: %s. %s", segment.file,
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Checks if a delivery failed for a reason that retrying will not resolve, i.e. the server rejected it with a
+     * permanent (5xx) error
+     *
+     * @param e failure
+     * @return true if the failure is permanent
+     */
+    private static boolean isPermanentFailure(Exception e) {
+
+        return e instanceof SMTPSendFailedException && ((SMTPSendFailedException) e).getReturnCode() / 100 == 5;
+    }
+
+    /**
+     * Gets the domain of the first recipient of an email, by which the order of delivery is kept
+     *
+     * @param message email
+     * @return domain in lower case
+     */
+    private static String getDomain(MimeMessage message) throws MessagingException {
+
+        Address[] recipients = message.getRecipients(Message.RecipientType.TO);
+        if (recipients == null || recipients.length == 0) {
+            recipients = message.getAllRecipients();
+        }
+        if (recipients != null && recipients.length > 0 && recipients[0] instanceof InternetAddress) {
+            String address = ((InternetAddress) recipients[0]).getAddress();
+            int separator = address == null ? -1 : address.lastIndexOf('@');
+            if (separator >= 0) {
+                return address.substring(separator + 1).toLowerCase(Locale.ROOT);
+            }
+        }
+        return UNKNOWN_DOMAIN;
+    }
+
+    /**
+     * Encodes an email as a record: the length and CRC32 checksum of the payload, followed by the payload holding the
+     * tracking ID, the domain and the email content
+     *
+     * @param trackingId tracking ID of the email
+     * @param domain     domain of the email
+     * @param message    email
+     * @return encoded record
+     */
+    private static byte[] encodeRecord(String trackingId, String domain, MimeMessage message)
+            throws IOException, MessagingException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(payload);
+        output.writeUTF(trackingId);
+        output.writeUTF(domain);
+        output.flush();
+        message.writeTo(payload);
+        byte[] bytes = payload.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+        record.putInt(bytes.length);
+        record.putInt((int) checksum.getValue());
+        record.put(bytes);
+        return record.array();
+    }
+
+    /**
+     * Reads the next record of a segment
+     *
+     * @param input segment content
+     * @return header of the record, or null if the end of the segment, or a partially written record, is reached
+     */
+    private static RecordHeader readRecord(DataInputStream input) throws IOException {
+
+        byte[] payload;
+        int checksum;
+        try {
+            int length = input.readInt();
+            checksum = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            payload = new byte[length];
+            input.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        DataInputStream payloadInput = new DataInputStream(new ByteArrayInputStream(payload));
+        return new RecordHeader(payloadInput.readUTF(), payloadInput.readUTF(), payload.length);
+    }
+
+    /**
+     * Segment file of the spool, along with the file of the offsets of its acknowledged records
+     */
+    private final class Segment {
+
+        private final long id;
+        private final Path file;
+        private final Path ackFile;
+        private FileChannel writer;
+        private FileChannel ackWriter;
+        private long size;
+        // Number of records not acknowledged yet, guarded by the spool
+        private int pending;
+
+        Segment(long id) {
+
+            this.id = id;
+            this.file = directory.resolve(format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+            this.ackFile = directory.resolve(format("%s%020d%s", SEGMENT_PREFIX, id, ACK_SUFFIX));
+        }
+
+        void openWriter() throws IOException {
+
+            writer = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Appends a record and syncs it to disk
+         */
+        SpooledEmail append(String trackingId, byte[] record) throws IOException {
+
+            long offset = size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                writer.write(buffer, offset + buffer.position());
+            }
+            writer.force(false);
+            size += record.length;
+            pending++;
+            return new SpooledEmail(trackingId, this, offset);
+        }
+
+        /**
+         * Reads the email content of the record at the given offset
+         */
+        byte[] read(long offset) throws IOException {
+
+            try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ);
+                 InputStream inputStream = Channels.newInputStream(reader.position(offset))) {
+                DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+                int length = input.readInt();
+                int checksum = input.readInt();
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException(format("Corrupted record at offset %d of spool segment: %s", offset, file));
+                }
+                DataInputStream payloadInput = new DataInputStream(new ByteArrayInputStream(payload));
+                payloadInput.readUTF();
+                payloadInput.readUTF();
+                int headerLength = length - payloadInput.available();
+                byte[] content = new byte[length - headerLength];
+                System.arraycopy(payload, headerLength, content, 0, content.length);
+                return content;
+            }
+        }
+
+        /**
+         * Removes a partially written record left at the end of the segment
+         */
+        void truncate(long validSize) throws IOException {
+
+            if (Files.size(file) <= validSize) {
+                return;
+            }
+            log.warn(format("Discarding partially written record at offset %d of spool segment: %s", validSize,
+                    file));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validSize);
+                channel.force(false);
+            }
+        }
+
+        /**
+         * Records the offset of an acknowledged record and syncs it to disk
+         */
+        synchronized void acknowledge(long offset) throws IOException {
+
+            if (ackWriter == null) {
+                ackWriter = FileChannel.open(ackFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            buffer.putLong(offset);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                ackWriter.write(buffer);
+            }
+            ackWriter.force(false);
+        }
+
+        Set<Long> readAcknowledgements() throws IOException {
+
+            Set<Long> offsets = new HashSet<>();
+            if (!Files.exists(ackFile)) {
+                return offsets;
+            }
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(ackFile)))) {
+                while (true) {
+                    offsets.add(input.readLong());
+                }
+            } catch (EOFException e) {
+                // A partially written offset at the end is ignored
+                return offsets;
+            }
+        }
+
+        void closeWriter() {
+
+            closeQuietly(writer);
+            writer = null;
+        }
+
+        synchronized void close() {
+
+            closeWriter();
+            closeQuietly(ackWriter);
+            ackWriter = null;
+        }
+
+        private void closeQuietly(FileChannel channel) {
+
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error(format("Error occurred while closing spool segment: %s. %s", file, e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * Emails to a domain, in the order they are to be sent
+     */
+    private static final class DomainLane {
+
+        private final String domain;
+        private final Deque<SpooledEmail> emails = new ArrayDeque<>();
+        private boolean scheduled;
+
+        DomainLane(String domain) {
+
+            this.domain = domain;
+        }
+    }
+
+    /**
+     * Location of a spooled email
+     */
+    private static final class SpooledEmail {
+
+        private final String trackingId;
+        private final Segment segment;
+        private final long offset;
+        private int attempts;
+        // Number of times no connection could be obtained to send the email
+        private int deferrals;
+
+        SpooledEmail(String trackingId, Segment segment, long offset) {
+
+            this.trackingId = trackingId;
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Tracking ID and domain read from a record
+     */
+    private static final class RecordHeader {
+
+        private final String trackingId;
+        private final String domain;
+        private final int length;
+
+        RecordHeader(String trackingId, String domain, int length) {
+
+            this.trackingId = trackingId;
+            this.domain = domain;
+            this.length = length;
+        }
+    }
+}
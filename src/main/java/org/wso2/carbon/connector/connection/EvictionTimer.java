@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Single daemon thread shared by all the connection pools to run their maintenance tasks
+ */
+final class EvictionTimer {
+
+    private static final Log log = LogFactory.getLog(EvictionTimer.class);
+    private static final String THREAD_NAME = "email-connection-evictor";
+
+    private static final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // One-off tasks are frequently cancelled before they are due, hence remove them from the queue right away
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    private EvictionTimer() {
+
+    }
+
+    /**
+     * Schedules a task to be run periodically
+     *
+     * @param task   task to be run
+     * @param period time in milliseconds between two runs
+     * @return handle to cancel the task
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long period) {
+
+        return scheduler.scheduleWithFixedDelay(guard(task), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a task to be run once after the given delay
+     *
+     * @param task  task to be run
+     * @param delay delay in milliseconds
+     * @return handle to cancel the task
+     */
+    static ScheduledFuture<?> scheduleOnce(Runnable task, long delay) {
+
+        return scheduler.schedule(guard(task), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wraps a task so that a failure does not cancel the subsequent runs
+     *
+     * @param task task to be wrapped
+     * @return wrapped task
+     */
+    private static Runnable guard(Runnable task) {
+
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error(format("Error occurred while running connection maintenance task. %s", e.getMessage()), e);
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import static java.lang.String.format;
+
+/**
+ * Action to be taken when the maximum number of active connections has been reached
+ */
+enum ExhaustedAction {
+
+    WHEN_EXHAUSTED_FAIL,
+    WHEN_EXHAUSTED_BLOCK,
+    WHEN_EXHAUSTED_GROW;
+
+    private static final Log log = LogFactory.getLog(ExhaustedAction.class);
+
+    /**
+     * Parse exhausted action from string
+     *
+     * @param exhaustedAction exhausted action in string, or null to use the default
+     * @return respective action
+     */
+    static ExhaustedAction of(String exhaustedAction) {
+
+        if (exhaustedAction == null) {
+            return WHEN_EXHAUSTED_BLOCK;
+        }
+        ExhaustedAction action;
+        switch (exhaustedAction) {
+            case "WHEN_EXHAUSTED_FAIL":
+                action = WHEN_EXHAUSTED_FAIL;
+                break;
+            case "WHEN_EXHAUSTED_BLOCK":
+                action = WHEN_EXHAUSTED_BLOCK;
+                break;
+            case "WHEN_EXHAUSTED_GROW":
+                action = WHEN_EXHAUSTED_GROW;
+                break;
+            default:
+                action = WHEN_EXHAUSTED_BLOCK;
+                log.warn(format("Unable to find the configured exhausted action. Setting to default: %s.", action));
+                break;
+        }
+        return action;
+    }
+}
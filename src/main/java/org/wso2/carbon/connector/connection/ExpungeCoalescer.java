@@ -0,0 +1,232 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
+import static java.lang.String.format;
+
+/**
+ * Defers the expunge of the emails deleted over a connection, so that emails deleted one after the other are
+ * expunged together.
+ * <p>
+ * Deleted emails are only marked as DELETED. The emails of a folder are expunged once the configured number of
+ * emails have been deleted in the folder, or once the configured interval has elapsed since the first of them was
+ * deleted, whichever comes first. If the server supports UIDPLUS, exactly the deleted emails are expunged with
+ * UID EXPUNGE. Otherwise, the folder is expunged.
+ */
+public class ExpungeCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpungeCoalescer.class);
+
+    private static final String THREAD_NAME = "email-expunge-";
+    private static final String CAPABILITY_UIDPLUS = "UIDPLUS";
+
+    private final String connectionName;
+    private final int batchSize;
+    private final long interval;
+    private final Map<String, PendingExpunge> pendingExpunges = new HashMap<>();
+    private EmailConnectionPool pool;
+    private ScheduledExecutorService scheduler;
+
+    ExpungeCoalescer(ConnectionConfiguration connectionConfiguration) {
+
+        this.connectionName = connectionConfiguration.getConnectionName();
+        this.batchSize = connectionConfiguration.getExpungeBatchSize();
+        this.interval = connectionConfiguration.getExpungeInterval();
+    }
+
+    /**
+     * Sets the pool of the connection, used to borrow a connection to expunge the folders
+     *
+     * @param pool connection pool
+     */
+    synchronized void setConnectionPool(EmailConnectionPool pool) {
+
+        this.pool = pool;
+    }
+
+    /**
+     * Schedules the expunge of emails marked as DELETED
+     *
+     * @param folder full name of the folder containing the emails
+     * @param uids   UIDs of the emails
+     */
+    public synchronized void schedule(String folder, long[] uids) {
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME + connectionName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        PendingExpunge pendingExpunge = pendingExpunges.computeIfAbsent(folder, name -> new PendingExpunge());
+        for (long uid : uids) {
+            pendingExpunge.uids.add(uid);
+        }
+        if (pendingExpunge.uids.size() >= batchSize) {
+            if (pendingExpunge.flush != null) {
+                pendingExpunge.flush.cancel(false);
+            }
+            pendingExpunge.flush = scheduler.schedule(() -> flush(folder), 0, TimeUnit.MILLISECONDS);
+        } else if (pendingExpunge.flush == null) {
+            pendingExpunge.flush = scheduler.schedule(() -> flush(folder), interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Discards the scheduled expunge of a folder, once the folder has been expunged explicitly
+     *
+     * @param folder full name of the folder
+     */
+    public synchronized void discard(String folder) {
+
+        PendingExpunge pendingExpunge = pendingExpunges.remove(folder);
+        if (pendingExpunge != null && pendingExpunge.flush != null) {
+            pendingExpunge.flush.cancel(false);
+        }
+    }
+
+    /**
+     * Expunges all the folders with emails pending to be expunged and stops the scheduler
+     */
+    void shutdown() {
+
+        List<String> folders;
+        synchronized (this) {
+            if (scheduler == null) {
+                return;
+            }
+            scheduler.shutdownNow();
+            scheduler = null;
+            folders = new ArrayList<>(pendingExpunges.keySet());
+        }
+        for (String folder : folders) {
+            flush(folder);
+        }
+    }
+
+    /**
+     * Expunges the emails of a folder pending to be expunged. If the expunge fails, the emails remain marked as
+     * DELETED and are expunged by the next expunge of the folder.
+     *
+     * @param folder full name of the folder
+     */
+    private void flush(String folder) {
+
+        Set<Long> uids;
+        EmailConnectionPool connectionPool;
+        synchronized (this) {
+            if (pool == null) {
+                return;
+            }
+            PendingExpunge pendingExpunge = pendingExpunges.remove(folder);
+            if (pendingExpunge == null) {
+                return;
+            }
+            uids = pendingExpunge.uids;
+            connectionPool = pool;
+        }
+        MailBoxConnection connection = null;
+        try {
+            connection = (MailBoxConnection) connectionPool.borrowObject();
+            expunge(connection, folder, uids);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Expunged %d email(s) of folder: %s of connection: %s.", uids.size(), folder,
+                        connectionName));
+            }
+        } catch (EmailConnectionException | EmailConnectionPoolException e) {
+            log.error(format("Failed to expunge %d email(s) of folder: %s of connection: %s. %s", uids.size(),
+                    folder, connectionName, e.getMessage()), e);
+        } finally {
+            if (connection != null) {
+                connectionPool.returnObject(connection);
+            }
+        }
+    }
+
+    /**
+     * Expunges emails marked as DELETED, with UID EXPUNGE if supported by the server
+     *
+     * @param connection connection to the mailbox
+     * @param folderName full name of the folder
+     * @param uids       UIDs of the emails
+     * @throws EmailConnectionException if failed to expunge the emails
+     */
+    private void expunge(MailBoxConnection connection, String folderName, Set<Long> uids)
+            throws EmailConnectionException {
+
+        Folder folder = connection.getFolder(folderName, Folder.READ_WRITE);
+        try {
+            if (!(folder instanceof IMAPFolder)
+                    || !((IMAPStore) folder.getStore()).hasCapability(CAPABILITY_UIDPLUS)) {
+                connection.releaseFolder(true);
+                return;
+            }
+            long[] uidArray = new long[uids.size()];
+            int i = 0;
+            for (long uid : uids) {
+                uidArray[i++] = uid;
+            }
+            List<Message> messages = new ArrayList<>();
+            for (Message message : ((IMAPFolder) folder).getMessagesByUID(uidArray)) {
+                // Emails expunged in the meantime are no longer found
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+            if (!messages.isEmpty()) {
+                ((IMAPFolder) folder).expunge(messages.toArray(new Message[0]));
+            }
+            connection.releaseFolder(false);
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while expunging folder: %s. %s", folderName,
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Emails of a folder pending to be expunged
+     */
+    private static final class PendingExpunge {
+
+        private final Set<Long> uids = new LinkedHashSet<>();
+        private ScheduledFuture<?> flush;
+    }
+}
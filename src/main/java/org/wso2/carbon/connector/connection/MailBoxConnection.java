@@ -5,8 +5,15 @@ import org.slf4j.LoggerFactory;
 import org.wso2.carbon.connector.exception.EmailConnectionException;
 import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import javax.mail.Folder;
 import javax.mail.MessagingException;
+import javax.mail.MethodNotSupportedException;
 import javax.mail.Store;
 
 import static java.lang.String.format;
@@ -20,10 +27,24 @@ public class MailBoxConnection extends EmailConnection {
 
     private Store store;
     private Folder folder;
+    private final Map<FolderKey, Folder> openFolders;
+    private final int maxOpenFolders;
+    private final boolean keepFoldersOpen;
+    private final MessageIDIndex messageIDIndex;
+    private final ExpungeCoalescer expungeCoalescer;
 
-    MailBoxConnection(ConnectionConfiguration connectionConfiguration) throws EmailConnectionException {
+    MailBoxConnection(ConnectionConfiguration connectionConfiguration, MessageIDIndex messageIDIndex,
+                      ExpungeCoalescer expungeCoalescer) throws EmailConnectionException {
 
         super(connectionConfiguration);
+        this.messageIDIndex = messageIDIndex;
+        this.expungeCoalescer = expungeCoalescer;
+        // Access ordered, hence the least recently used folder is the first entry
+        this.openFolders = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxOpenFolders = Math.max(connectionConfiguration.getMaxOpenFolders(), 1);
+        // POP3 folders do not reflect new messages until they are reopened, hence are never kept open
+        this.keepFoldersOpen = connectionConfiguration.isKeepFoldersOpen()
+                && !EmailProtocol.POP3.getName().equals(connectionConfiguration.getProtocol().getName());
         try {
             this.store = this.getSession().getStore(connectionConfiguration.getProtocol().getName());
             this.store.connect();
@@ -36,8 +57,9 @@ public class MailBoxConnection extends EmailConnection {
     /**
      * Opens and return the email folder.
      * <p>
-     * If there was an already opened folder and a different one is requested the opened folder will be closed
-     * and the new one will be opened.
+     * Opened folders are cached separately for each open mode, up to the configured maximum number of open folders.
+     * If the requested folder is already open in the requested mode, it is returned without being reopened.
+     * Otherwise, the folder is opened and the least recently used folder is closed if the maximum is exceeded.
      *
      * @param mailBoxFolder the name of the folder to be opened.
      * @param openMode      open the folder in READ_ONLY or READ_WRITE mode
@@ -45,24 +67,58 @@ public class MailBoxConnection extends EmailConnection {
      */
     public synchronized Folder getFolder(String mailBoxFolder, int openMode) throws EmailConnectionException {
 
-        try {
-            if (folder != null) {
-                if (isCurrentFolder(mailBoxFolder) && folder.isOpen() && folder.getMode() == openMode) {
-                    return folder;
-                }
-                closeFolder(false);
+        FolderKey key = new FolderKey(mailBoxFolder, openMode);
+        Folder cachedFolder = openFolders.get(key);
+        if (cachedFolder != null) {
+            if (cachedFolder.isOpen()) {
+                folder = cachedFolder;
+                return folder;
             }
-
+            // The server may have closed the folder since it was last used
+            openFolders.remove(key);
+        }
+        try {
             folder = store.getFolder(mailBoxFolder);
             folder.open(openMode);
-
         } catch (MessagingException e) {
             throw new EmailConnectionException(format("Error while opening folder : %s. %s", mailBoxFolder,
                     e.getMessage()), e);
         }
+        openFolders.put(key, folder);
+        evictFolders();
         return folder;
     }
 
+    /**
+     * Releases the current connection folder once an operation is done with it.
+     * <p>
+     * If folders are configured to be kept open, the folder is left open for the subsequent operations and
+     * messages marked as DELETED are expunged without closing it. Otherwise, the folder is closed.
+     *
+     * @param expunge whether to remove all the emails marked as DELETED.
+     */
+    public synchronized void releaseFolder(boolean expunge) throws EmailConnectionException {
+
+        if (folder == null) {
+            return;
+        }
+        if (!keepFoldersOpen || !folder.isOpen()) {
+            closeFolder(expunge);
+            return;
+        }
+        if (expunge && folder.getMode() == Folder.READ_WRITE) {
+            try {
+                folder.expunge();
+            } catch (MethodNotSupportedException e) {
+                // Some stores only remove deleted messages when the folder is closed
+                closeFolder(true);
+            } catch (MessagingException e) {
+                throw new EmailConnectionException(format("Error occurred while expunging folder: %s. %s",
+                        folder.getFullName(), e.getMessage()), e);
+            }
+        }
+    }
+
     /**
      * Closes the current connection folder.
      *
@@ -70,11 +126,15 @@ public class MailBoxConnection extends EmailConnection {
      */
     public synchronized void closeFolder(boolean expunge) throws EmailConnectionException {
 
+        if (folder == null) {
+            return;
+        }
         try {
             if (log.isDebugEnabled()) {
                 log.debug(format("Closing folder: %s ...", this.folder.getFullName()));
             }
-            if (folder != null && folder.isOpen()) {
+            openFolders.values().remove(folder);
+            if (folder.isOpen()) {
                 folder.close(expunge);
             }
         } catch (MessagingException e) {
@@ -84,26 +144,48 @@ public class MailBoxConnection extends EmailConnection {
     }
 
     /**
-     * Checks if a mailBoxFolder name is the same name as the current folder.
+     * Closes the least recently used folders exceeding the maximum number of open folders
+     */
+    private void evictFolders() {
+
+        Iterator<Folder> iterator = openFolders.values().iterator();
+        while (openFolders.size() > maxOpenFolders && iterator.hasNext()) {
+            Folder eldest = iterator.next();
+            iterator.remove();
+            closeQuietly(eldest);
+        }
+    }
+
+    /**
+     * Closes a folder without expunging, logging any failure
      *
-     * @param mailBoxFolder the name of the folder
-     * @return true if is the same folder, false otherwise.
+     * @param openFolder folder to be closed
      */
-    private boolean isCurrentFolder(String mailBoxFolder) {
+    private void closeQuietly(Folder openFolder) {
 
-        return folder.getName() != null && folder.getName().equalsIgnoreCase(mailBoxFolder);
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug(format("Closing folder: %s ...", openFolder.getFullName()));
+            }
+            if (openFolder.isOpen()) {
+                openFolder.close(false);
+            }
+        } catch (Exception e) {
+            log.error(format("Error closing mailbox folder %s. %s", openFolder.getFullName(), e.getMessage()), e);
+        }
     }
 
     /**
-     * Closes the folder and the store
+     * Closes the folders and the store
      */
     synchronized void disconnect() {
 
         try {
-            closeFolder(false);
-        } catch (Exception e) {
-            log.error(format("Error closing mailbox folder %s when disconnecting. %s", folder.getName(),
-                    e.getMessage()), e);
+            List<Folder> folders = new ArrayList<>(openFolders.values());
+            openFolders.clear();
+            for (Folder openFolder : folders) {
+                closeQuietly(openFolder);
+            }
         } finally {
             try {
                 store.close();
@@ -113,6 +195,26 @@ public class MailBoxConnection extends EmailConnection {
         }
     }
 
+    /**
+     * Gets the index of the UIDs of the emails by Message-ID, shared by all the connections of the pool
+     *
+     * @return Message-ID index
+     */
+    public MessageIDIndex getMessageIDIndex() {
+
+        return messageIDIndex;
+    }
+
+    /**
+     * Gets the coalescer of the expunges, shared by all the connections of the pool
+     *
+     * @return Expunge coalescer, or null if expunges are not deferred
+     */
+    public ExpungeCoalescer getExpungeCoalescer() {
+
+        return expungeCoalescer;
+    }
+
     /**
      * Checks if the store is connection is active
      *
@@ -122,4 +224,38 @@ public class MailBoxConnection extends EmailConnection {
 
         return store.isConnected();
     }
+
+    /**
+     * Key of an open folder in the cache
+     */
+    private static final class FolderKey {
+
+        private final String name;
+        private final int mode;
+
+        FolderKey(String name, int mode) {
+
+            this.name = name;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FolderKey folderKey = (FolderKey) o;
+            return mode == folderKey.mode && Objects.equals(name, folderKey.name);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return Objects.hash(name, mode);
+        }
+    }
 }
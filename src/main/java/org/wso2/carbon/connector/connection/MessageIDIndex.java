@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.wso2.carbon.connector.utils.BoundedCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the UIDs of the emails in each folder of a mailbox by their Message-ID, filled as emails are listed.
+ * <p>
+ * This allows emails identified only by their Message-ID to be looked up by UID instead of searching the Message-ID
+ * header of every email in the folder. The index of a folder is discarded once its UIDVALIDITY changes. Since UIDs
+ * are never reused within a UIDVALIDITY, an indexed UID either still refers to the same email or to no email at
+ * all, in which case the entry is removed when the lookup by UID fails.
+ */
+public class MessageIDIndex {
+
+    // UIDs of the least recently used emails of a folder are discarded beyond this limit
+    private static final int MAX_ENTRIES_PER_FOLDER = 10000;
+
+    private final Map<String, FolderIndex> folders = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the UID of an email
+     *
+     * @param folder      full name of the folder containing the email
+     * @param uidValidity UIDVALIDITY of the folder
+     * @param messageID   Message-ID of the email
+     * @param uid         UID of the email
+     */
+    public void put(String folder, long uidValidity, String messageID, long uid) {
+
+        if (messageID == null || uid <= 0) {
+            return;
+        }
+        FolderIndex folderIndex = folders.compute(folder, (name, index) ->
+                index == null || index.uidValidity != uidValidity ? new FolderIndex(uidValidity) : index);
+        folderIndex.uids.put(messageID, uid);
+    }
+
+    /**
+     * Gets the indexed UID of an email
+     *
+     * @param folder      full name of the folder containing the email
+     * @param uidValidity current UIDVALIDITY of the folder
+     * @param messageID   Message-ID of the email
+     * @return UID of the email, or -1 if the email is not indexed
+     */
+    public long getUID(String folder, long uidValidity, String messageID) {
+
+        FolderIndex folderIndex = folders.get(folder);
+        if (folderIndex == null) {
+            return -1;
+        }
+        if (folderIndex.uidValidity != uidValidity) {
+            folders.remove(folder, folderIndex);
+            return -1;
+        }
+        Long uid = folderIndex.uids.get(messageID);
+        return uid != null ? uid : -1;
+    }
+
+    /**
+     * Removes the indexed UID of an email
+     *
+     * @param folder    full name of the folder containing the email
+     * @param messageID Message-ID of the email
+     */
+    public void remove(String folder, String messageID) {
+
+        FolderIndex folderIndex = folders.get(folder);
+        if (folderIndex != null) {
+            folderIndex.uids.remove(messageID);
+        }
+    }
+
+    /**
+     * UIDs of the emails of a folder, valid for a single UIDVALIDITY of the folder
+     */
+    private static final class FolderIndex {
+
+        private final long uidValidity;
+        private final BoundedCache<String, Long> uids = new BoundedCache<>(MAX_ENTRIES_PER_FOLDER);
+
+        FolderIndex(long uidValidity) {
+
+            this.uidValidity = uidValidity;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
+
+/**
+ * Connection "pool" used when pooling is disabled.
+ * <p>
+ * A new connection is created for each borrower, limited by the maximum number of active connections unless it is
+ * unlimited (zero or negative) or the exhausted action is to grow. The last
+ * returned connection is cached for a short time (the minimum eviction time, if configured) so that closely spaced
+ * operations can reuse it, and is closed afterwards. No idle connections or evictor tasks are kept otherwise.
+ */
+public class PassThroughEmailConnectionPool implements EmailConnectionPool {
+
+    private static final Log log = LogFactory.getLog(PassThroughEmailConnectionPool.class);
+
+    private static final long DEFAULT_CACHE_TIME = 5000L;
+
+    private final PoolableObjectFactory factory;
+    private final Semaphore permits;
+    private final ExhaustedAction exhaustedAction;
+    private final long maxWait;
+    private final long cacheTime;
+    private final AtomicReference<CachedConnection> cachedConnection = new AtomicReference<>();
+    private volatile boolean closed;
+
+    PassThroughEmailConnectionPool(PoolableObjectFactory factory, ConnectionConfiguration connectionConfiguration) {
+
+        this.factory = factory;
+        this.exhaustedAction = ExhaustedAction.of(connectionConfiguration.getExhaustedAction());
+        int maxActive = connectionConfiguration.getMaxActiveConnections();
+        if (maxActive > 0 && exhaustedAction != ExhaustedAction.WHEN_EXHAUSTED_GROW) {
+            this.permits = new Semaphore(maxActive);
+        } else {
+            this.permits = null;
+        }
+        this.maxWait = connectionConfiguration.getMaxWaitTime();
+        this.cacheTime = connectionConfiguration.getMinEvictionTime() > 0
+                ? connectionConfiguration.getMinEvictionTime() : DEFAULT_CACHE_TIME;
+    }
+
+    @Override
+    public Object borrowObject() throws EmailConnectionPoolException {
+
+        if (closed) {
+            throw new EmailConnectionPoolException("Error occurred while borrowing connection. Pool is closed.");
+        }
+        acquirePermit();
+        try {
+            CachedConnection cached = cachedConnection.getAndSet(null);
+            if (cached != null) {
+                cached.cancelExpiry();
+                if (factory.validateObject(cached.connection)) {
+                    log.debug("Reusing cached connection...");
+                    return cached.connection;
+                }
+                destroy(cached.connection);
+            }
+            log.debug("Creating new connection...");
+            return factory.makeObject();
+        } catch (Exception e) {
+            releasePermit();
+            throw new EmailConnectionPoolException(format("Error occurred while borrowing connection. %s",
+                    e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void returnObject(Object obj) {
+
+        if (obj == null) {
+            return;
+        }
+        try {
+            if (closed) {
+                destroy(obj);
+                return;
+            }
+            CachedConnection cached = new CachedConnection(obj);
+            CachedConnection previous = cachedConnection.getAndSet(cached);
+            if (previous != null) {
+                previous.cancelExpiry();
+                destroy(previous.connection);
+            }
+            cached.expiry = EvictionTimer.scheduleOnce(() -> expire(cached), cacheTime);
+            if (closed) {
+                clearCachedConnection();
+            }
+        } finally {
+            releasePermit();
+        }
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        clearCachedConnection();
+    }
+
+    /**
+     * Acquires a permit to hold an active connection according to the configured exhausted action
+     *
+     * @throws EmailConnectionPoolException if a permit could not be obtained
+     */
+    private void acquirePermit() throws EmailConnectionPoolException {
+
+        if (permits == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            if (exhaustedAction == ExhaustedAction.WHEN_EXHAUSTED_FAIL) {
+                acquired = permits.tryAcquire();
+            } else if (maxWait > 0) {
+                acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+            } else {
+                permits.acquire();
+                acquired = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailConnectionPoolException("Interrupted while waiting for a connection.", e);
+        }
+        if (!acquired) {
+            throw new EmailConnectionPoolException("Error occurred while borrowing connection. " +
+                    "Maximum number of active connections reached.");
+        }
+    }
+
+    /**
+     * Releases a permit acquired when borrowing a connection
+     */
+    private void releasePermit() {
+
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the cached connection if it has not been reused since it was cached
+     *
+     * @param cached cached connection
+     */
+    private void expire(CachedConnection cached) {
+
+        if (cachedConnection.compareAndSet(cached, null)) {
+            log.debug("Closing expired cached connection...");
+            destroy(cached.connection);
+        }
+    }
+
+    /**
+     * Closes the cached connection, if any
+     */
+    private void clearCachedConnection() {
+
+        CachedConnection cached = cachedConnection.getAndSet(null);
+        if (cached != null) {
+            cached.cancelExpiry();
+            destroy(cached.connection);
+        }
+    }
+
+    /**
+     * Destroys a connection
+     *
+     * @param connection connection to be destroyed
+     */
+    private void destroy(Object connection) {
+
+        try {
+            factory.destroyObject(connection);
+        } catch (Exception e) {
+            log.error(format("Error occurred while destroying connection. %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Connection cached after being returned along with the task closing it on expiry
+     */
+    private static final class CachedConnection {
+
+        private final Object connection;
+        private volatile ScheduledFuture<?> expiry;
+
+        CachedConnection(Object connection) {
+
+            this.connection = connection;
+        }
+
+        void cancelExpiry() {
+
+            ScheduledFuture<?> task = expiry;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+    }
+}
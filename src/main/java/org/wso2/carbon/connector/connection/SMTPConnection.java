@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import static java.lang.String.format;
+
+/**
+ * Represents an authenticated connection to an SMTP server, which can be used to send many messages
+ */
+public class SMTPConnection extends EmailConnection {
+
+    private static final Logger log = LoggerFactory.getLogger(SMTPConnection.class);
+
+    private final Transport transport;
+
+    SMTPConnection(ConnectionConfiguration connectionConfiguration) throws EmailConnectionException {
+
+        super(connectionConfiguration);
+        try {
+            this.transport = this.getSession().getTransport(connectionConfiguration.getProtocol().getName());
+            this.transport.connect();
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while connecting to the SMTP server. %s",
+                    e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Sends a message to all its recipients over this connection
+     *
+     * @param message message to be sent
+     * @throws MessagingException if failed to send the message
+     */
+    public void sendMessage(MimeMessage message) throws MessagingException {
+
+        message.saveChanges();
+        sendSavedMessage(message);
+    }
+
+    /**
+     * Sends a message whose headers have already been updated, such as a message read back from a file, to all its
+     * recipients over this connection. Headers such as the Message-ID are sent as they are.
+     *
+     * @param message message to be sent
+     * @throws MessagingException if failed to send the message
+     */
+    public void sendSavedMessage(MimeMessage message) throws MessagingException {
+
+        sendSavedMessage(message, message.getAllRecipients());
+    }
+
+    /**
+     * Sends a message whose headers have already been updated to the given recipients over this connection
+     *
+     * @param message    message to be sent
+     * @param recipients recipients to send the message to
+     * @throws MessagingException if failed to send the message
+     */
+    public void sendSavedMessage(MimeMessage message, Address[] recipients) throws MessagingException {
+
+        if (recipients == null || recipients.length == 0) {
+            throw new SendFailedException("No recipient addresses");
+        }
+        transport.sendMessage(message, recipients);
+    }
+
+    /**
+     * Checks if the connection to the server is active. The server is sent a NOOP command to verify it.
+     *
+     * @return true if the connection is active, false otherwise
+     */
+    boolean isConnected() {
+
+        return transport.isConnected();
+    }
+
+    /**
+     * Closes the connection to the server
+     */
+    void disconnect() {
+
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.error(format("Error closing SMTP connection when disconnecting. %s", e.getMessage()), e);
+        }
+    }
+}
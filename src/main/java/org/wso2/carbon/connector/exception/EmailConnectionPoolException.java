@@ -22,6 +22,11 @@ package org.wso2.carbon.connector.exception;
  */
 public class EmailConnectionPoolException extends Exception {
 
+    public EmailConnectionPoolException(String message) {
+
+        super(message);
+    }
+
     public EmailConnectionPoolException(String message, Throwable cause) {
 
         super(message, cause);
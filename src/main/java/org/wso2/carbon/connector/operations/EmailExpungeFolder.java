@@ -21,6 +21,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.connection.EmailConnectionManager;
 import org.wso2.carbon.connector.connection.EmailConnectionPool;
+import org.wso2.carbon.connector.connection.ExpungeCoalescer;
 import org.wso2.carbon.connector.connection.MailBoxConnection;
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.exception.ContentBuilderException;
@@ -84,7 +85,12 @@ public class EmailExpungeFolder extends AbstractConnector {
         if (StringUtils.isEmpty(folder)) {
             folder = EmailConstants.DEFAULT_FOLDER;
         }
-        connection.getFolder(folder, Folder.READ_WRITE);
-        connection.closeFolder(true);
+        Folder mailbox = connection.getFolder(folder, Folder.READ_WRITE);
+        connection.releaseFolder(true);
+        // The deferred expunge of the folder is no longer required
+        ExpungeCoalescer coalescer = connection.getExpungeCoalescer();
+        if (coalescer != null) {
+            coalescer.discard(mailbox.getFullName());
+        }
     }
 }
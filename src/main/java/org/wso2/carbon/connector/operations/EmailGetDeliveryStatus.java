@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.operations;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.connection.EmailConnectionManager;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
+import org.wso2.carbon.connector.utils.ConfigurationUtils;
+import org.wso2.carbon.connector.utils.EmailConstants;
+import org.wso2.carbon.connector.utils.Error;
+import org.wso2.carbon.connector.utils.ResponseHandler;
+
+/**
+ * Retrieves the delivery status of an email sent asynchronously or through the spool
+ */
+public class EmailGetDeliveryStatus extends AbstractConnector {
+
+    @Override
+    public void connect(MessageContext messageContext) {
+
+        try {
+            String trackingId = (String) getParameter(messageContext, EmailConstants.TRACKING_ID);
+            if (StringUtils.isEmpty(trackingId)) {
+                throw new InvalidConfigurationException("Mandatory parameter 'trackingId' is not provided.");
+            }
+            String name = ConfigurationUtils.getConnectionName(messageContext);
+            DeliveryStatus status = EmailConnectionManager.getEmailConnectionManager().getDeliveryTracker(name)
+                    .getStatus(trackingId);
+            ResponseHandler.setDeliveryStatusResponse(messageContext, trackingId, status);
+        } catch (EmailConnectionException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
+            handleException(e.getMessage(), e, messageContext);
+        } catch (InvalidConfigurationException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.INVALID_CONFIGURATION);
+            handleException(e.getMessage(), e, messageContext);
+        }
+    }
+}
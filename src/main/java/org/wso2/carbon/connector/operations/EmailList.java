@@ -17,11 +17,13 @@
  */
 package org.wso2.carbon.connector.operations;
 
+import com.sun.mail.imap.IMAPFolder;
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.connection.EmailConnectionManager;
 import org.wso2.carbon.connector.connection.EmailConnectionPool;
 import org.wso2.carbon.connector.connection.MailBoxConnection;
+import org.wso2.carbon.connector.connection.MessageIDIndex;
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.exception.EmailConnectionException;
 import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
@@ -29,20 +31,25 @@ import org.wso2.carbon.connector.exception.EmailParsingException;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.EmailMessage;
 import org.wso2.carbon.connector.pojo.MailboxConfiguration;
+import org.wso2.carbon.connector.utils.AttachmentStore;
 import org.wso2.carbon.connector.utils.ConfigurationUtils;
 import org.wso2.carbon.connector.utils.EmailParser;
 import org.wso2.carbon.connector.utils.EmailPropertyNames;
 import org.wso2.carbon.connector.utils.Error;
+import org.wso2.carbon.connector.utils.IMAPUtils;
 import org.wso2.carbon.connector.utils.ResponseHandler;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import javax.mail.FetchProfile;
 import javax.mail.Flags;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.search.AndTerm;
@@ -61,6 +68,8 @@ import static java.util.Date.from;
  */
 public class EmailList extends AbstractConnector {
 
+    private static final String CONTINUATION_TOKEN_SEPARATOR = ":";
+
     @Override
     public void connect(MessageContext messageContext) {
 
@@ -75,7 +84,13 @@ public class EmailList extends AbstractConnector {
             connection = (MailBoxConnection) pool.borrowObject();
             MailboxConfiguration mailboxConfiguration = ConfigurationUtils.getMailboxConfigFromContext(messageContext);
             folderName = mailboxConfiguration.getFolder();
-            List<EmailMessage> messageList = retrieveMessages(connection, mailboxConfiguration);
+            List<EmailMessage> messageList = retrieveMessages(connection, connectionName, mailboxConfiguration,
+                    messageContext);
+            // Attachments of previously listed emails can no longer be retrieved once the list is replaced
+            Object previousMessages = messageContext.getProperty(EmailPropertyNames.PROPERTY_EMAILS);
+            if (previousMessages instanceof List) {
+                AttachmentStore.release((List<?>) previousMessages);
+            }
             messageContext.setProperty(EmailPropertyNames.PROPERTY_EMAILS, messageList);
             ResponseHandler.setEmailListResponse(messageList, messageContext);
         } catch (EmailConnectionException | EmailConnectionPoolException e) {
@@ -98,10 +113,14 @@ public class EmailList extends AbstractConnector {
      * Retrieves messages that matches given filtering criteria
      *
      * @param connection           Mailbox connection to be used
+     * @param connectionName       Name of the connection
      * @param mailboxConfiguration Mailbox Configurations
+     * @param messageContext       Message Context to set the continuation token in
      */
-    private List<EmailMessage> retrieveMessages(MailBoxConnection connection, MailboxConfiguration mailboxConfiguration)
-            throws EmailConnectionException, EmailParsingException {
+    private List<EmailMessage> retrieveMessages(MailBoxConnection connection, String connectionName,
+                                                MailboxConfiguration mailboxConfiguration,
+                                                MessageContext messageContext)
+            throws EmailConnectionException, EmailParsingException, InvalidConfigurationException {
 
         try {
             String folderName = mailboxConfiguration.getFolder();
@@ -116,16 +135,187 @@ public class EmailList extends AbstractConnector {
             if (log.isDebugEnabled()) {
                 log.debug(format("Retrieving messages from Mail folder: %s ...", folderName));
             }
-            Message[] messages = mailbox.search(getSearchTerm(mailboxConfiguration));
-            List<EmailMessage> messageList = EmailParser.parseMessageList(getPaginatedMessages(messages,
-                    mailboxConfiguration.getOffset(), mailboxConfiguration.getLimit(), deleteAfterRetrieval));
-            connection.closeFolder(deleteAfterRetrieval);
+            List<Message> messages;
+            if (mailboxConfiguration.getServerSidePagination() && mailbox instanceof IMAPFolder) {
+                messages = getUIDPaginatedMessages((IMAPFolder) mailbox, mailboxConfiguration, messageContext);
+            } else {
+                if (mailboxConfiguration.getServerSidePagination()) {
+                    log.warn(format("Server side pagination is not supported by folder: %s. " +
+                            "Falling back to offset based pagination.", folderName));
+                }
+                messages = getPaginatedMessages(mailbox.search(getSearchTerm(mailboxConfiguration)),
+                        mailboxConfiguration.getOffset(), mailboxConfiguration.getLimit(), deleteAfterRetrieval);
+            }
+            prefetchMessages(mailbox, messages, mailboxConfiguration.getFetchProfile());
+            List<EmailMessage> messageList;
+            // Content of deleted messages cannot be retrieved later, hence they are always parsed in full
+            if (mailboxConfiguration.getLazyLoad() && mailbox instanceof IMAPFolder && !deleteAfterRetrieval) {
+                messageList = EmailParser.parseMessageStructureList(messages, (IMAPFolder) mailbox, connectionName,
+                        mailboxConfiguration.getSpillThreshold());
+            } else {
+                messageList = EmailParser.parseMessageList(messages, mailboxConfiguration.getSpillThreshold(),
+                        mailboxConfiguration.getParseParallelism());
+                if (mailbox instanceof UIDFolder) {
+                    setUIDs((UIDFolder) mailbox, messages, messageList);
+                }
+            }
+            // Deleted messages are expunged right away, hence are not indexed
+            if (mailbox instanceof UIDFolder && !deleteAfterRetrieval) {
+                indexMessageIDs(connection.getMessageIDIndex(), mailbox.getFullName(), messageList);
+            }
+            connection.releaseFolder(deleteAfterRetrieval);
             return messageList;
         } catch (MessagingException e) {
             throw new EmailConnectionException(format("Error occurred when searching emails. %s", e.getMessage()), e);
         }
     }
 
+    /**
+     * Fetches the items in the fetch profile for all the messages in a single request, so that they are not
+     * fetched one message at a time while parsing
+     *
+     * @param folder       folder containing the messages
+     * @param messages     messages to be prefetched
+     * @param fetchProfile items to be prefetched, or null to skip prefetching
+     * @throws MessagingException if failed to fetch the messages
+     */
+    private void prefetchMessages(Folder folder, List<Message> messages, FetchProfile fetchProfile)
+            throws MessagingException {
+
+        if (fetchProfile == null || messages.isEmpty()) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Prefetching %d message(s)...", messages.size()));
+        }
+        folder.fetch(messages.toArray(new Message[0]), fetchProfile);
+    }
+
+    /**
+     * Sets the UID and the UIDVALIDITY of the parsed emails, so that they can be addressed by UID afterwards. The
+     * UIDs not fetched already are fetched for all the messages in a single request.
+     *
+     * @param folder        folder containing the messages
+     * @param messages      messages that were parsed
+     * @param emailMessages parsed emails, in the same order as the messages
+     * @throws MessagingException if failed to fetch the UIDs
+     */
+    private void setUIDs(UIDFolder folder, List<Message> messages, List<EmailMessage> emailMessages)
+            throws MessagingException {
+
+        if (messages.isEmpty()) {
+            return;
+        }
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+        ((Folder) folder).fetch(messages.toArray(new Message[0]), fetchProfile);
+        long uidValidity = folder.getUIDValidity();
+        for (int i = 0; i < emailMessages.size(); i++) {
+            emailMessages.get(i).setUidValidity(uidValidity);
+            emailMessages.get(i).setUid(folder.getUID(messages.get(i)));
+        }
+    }
+
+    /**
+     * Indexes the UIDs of the listed emails by their Message-ID, so that operations on the emails identified by
+     * Message-ID do not have to search the folder
+     *
+     * @param index         index of the connection
+     * @param folderName    full name of the folder containing the emails
+     * @param emailMessages listed emails
+     */
+    private void indexMessageIDs(MessageIDIndex index, String folderName, List<EmailMessage> emailMessages) {
+
+        for (EmailMessage emailMessage : emailMessages) {
+            index.put(folderName, emailMessage.getUidValidity(), emailMessage.getEmailId(), emailMessage.getUid());
+        }
+    }
+
+    /**
+     * Retrieves a page of messages by searching the UIDs on the server, starting after the UID in the continuation
+     * token. The continuation token for the next page is set in the message context.
+     * <p>
+     * If the server does not support ESEARCH with PARTIAL results, all the UIDs from the start of the page to the end
+     * of the folder are returned by the server for each page, hence retrieving a page costs time proportional to the
+     * rest of the folder.
+     *
+     * @param folder               IMAP folder to retrieve messages from
+     * @param mailboxConfiguration Mailbox Configurations
+     * @param messageContext       Message Context to set the continuation token in
+     * @return List of paginated messages
+     * @throws InvalidConfigurationException if the offset, the limit or the continuation token is invalid
+     */
+    private List<Message> getUIDPaginatedMessages(IMAPFolder folder, MailboxConfiguration mailboxConfiguration,
+                                                  MessageContext messageContext)
+            throws MessagingException, EmailConnectionException, InvalidConfigurationException {
+
+        int limit = mailboxConfiguration.getLimit();
+        int offset = mailboxConfiguration.getOffset();
+        if (limit <= 0) {
+            throw new InvalidConfigurationException(format("Invalid limit: %d. The limit must be greater than 0 for " +
+                    "server side pagination.", limit));
+        }
+        if (offset < 0 || offset > Integer.MAX_VALUE - limit) {
+            throw new InvalidConfigurationException(format("Invalid offset: %d. The offset must not be negative and " +
+                    "the offset and limit must not exceed %d together.", offset, Integer.MAX_VALUE));
+        }
+        long uidValidity = folder.getUIDValidity();
+        long fromUID = 1;
+        String continuationToken = mailboxConfiguration.getContinuationToken();
+        if (!StringUtils.isEmpty(continuationToken)) {
+            fromUID = getLastUID(continuationToken, uidValidity) + 1;
+            offset = 0;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Retrieving %d message(s) starting from UID %d ...", limit, fromUID));
+        }
+        long[] uids = IMAPUtils.searchUIDs(folder, getSearchTerm(mailboxConfiguration), fromUID, offset, limit);
+        List<Message> messageList = new ArrayList<>();
+        if (uids.length > 0) {
+            for (Message message : folder.getMessagesByUID(uids)) {
+                // Messages expunged after the search are returned as null
+                if (message != null) {
+                    messageList.add(message);
+                }
+            }
+        }
+        long lastUID = uids.length > 0 ? uids[uids.length - 1] : fromUID - 1;
+        messageContext.setProperty(EmailPropertyNames.PROPERTY_CONTINUATION_TOKEN,
+                uidValidity + CONTINUATION_TOKEN_SEPARATOR + lastUID);
+        if (mailboxConfiguration.getDeleteAfterRetrieve()) {
+            markMessagesAsDeleted(messageList);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Retrieved %d message(s)...", messageList.size()));
+        }
+        return messageList;
+    }
+
+    /**
+     * Extracts the last retrieved UID from a continuation token
+     *
+     * @param continuationToken continuation token in the form of uidValidity:lastUID
+     * @param uidValidity       current UIDVALIDITY of the folder
+     * @return last retrieved UID
+     * @throws InvalidConfigurationException if the token is invalid or has expired
+     */
+    private long getLastUID(String continuationToken, long uidValidity) throws InvalidConfigurationException {
+
+        String[] parts = continuationToken.split(CONTINUATION_TOKEN_SEPARATOR);
+        try {
+            if (parts.length == 2) {
+                if (Long.parseLong(parts[0]) != uidValidity) {
+                    throw new InvalidConfigurationException(format("Continuation token: %s has expired as the " +
+                            "UIDVALIDITY of the folder has changed.", continuationToken));
+                }
+                return Long.parseLong(parts[1]);
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException(format("Invalid continuation token: %s", continuationToken), e);
+        }
+        throw new InvalidConfigurationException(format("Invalid continuation token: %s", continuationToken));
+    }
+
     /**
      * Retrieves paginated messages
      *
@@ -148,7 +338,7 @@ public class EmailList extends AbstractConnector {
             messageList = messageList.subList(offset, toIndex);
         }
         if (deleteAfterRetrieval) {
-            markMessagesAsDeleted(messages, offset, toIndex);
+            markMessagesAsDeleted(messageList);
         }
         if (log.isDebugEnabled()) {
             log.debug(format("Retrieved %d message(s)...", messageList.size()));
@@ -157,20 +347,18 @@ public class EmailList extends AbstractConnector {
     }
 
     /**
-     * Marks emails within a range as deleted
+     * Marks emails as deleted
      *
      * @param messages List of messages
-     * @param from     Start index
-     * @param to       End index
      */
-    private void markMessagesAsDeleted(Message[] messages, int from, int to) {
+    private void markMessagesAsDeleted(List<Message> messages) {
 
         if (log.isDebugEnabled()) {
-            log.debug(format("Marking messages from %d to %d as deleted...", from, to));
+            log.debug(format("Marking %d message(s) as deleted...", messages.size()));
         }
-        for (int i = from; i < to; i++) {
+        for (Message message : messages) {
             try {
-                messages[i].setFlag(Flags.Flag.DELETED, true);
+                message.setFlag(Flags.Flag.DELETED, true);
             } catch (MessagingException e) {
                 log.error(format("Failed to mark message as deleted. %s", e.getMessage()), e);
             }
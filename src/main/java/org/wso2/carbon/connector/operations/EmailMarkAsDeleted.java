@@ -17,6 +17,7 @@
  */
 package org.wso2.carbon.connector.operations;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.connection.EmailConnectionManager;
 import org.wso2.carbon.connector.connection.EmailConnectionPool;
@@ -47,6 +48,10 @@ public class EmailMarkAsDeleted extends AbstractConnector {
 
         String folder = (String) getParameter(messageContext, EmailConstants.FOLDER);
         String emailID = (String) getParameter(messageContext, EmailConstants.EMAIL_ID);
+        String emailIDs = (String) getParameter(messageContext, EmailConstants.EMAIL_IDS);
+        String uids = (String) getParameter(messageContext, EmailConstants.UIDS);
+        String uid = (String) getParameter(messageContext, EmailConstants.UID);
+        String uidValidity = (String) getParameter(messageContext, EmailConstants.UID_VALIDITY);
         String errorString = "Error occurred while marking email with ID: %s as deleted. %s";
         EmailConnectionPool pool = null;
         MailBoxConnection connection = null;
@@ -54,8 +59,17 @@ public class EmailMarkAsDeleted extends AbstractConnector {
             String connectionName = ConfigurationUtils.getConnectionName(messageContext);
             pool = EmailConnectionManager.getEmailConnectionManager().getConnectionPool(connectionName);
             connection = (MailBoxConnection) pool.borrowObject();
-            boolean status = EmailOperationUtils.changeEmailState(connection, folder, emailID,Flags.Flag.DELETED,
-                    false);
+            boolean status;
+            if (StringUtils.isNotEmpty(emailIDs) || StringUtils.isNotEmpty(uids)) {
+                status = EmailOperationUtils.changeEmailsState(connection, folder,
+                        ConfigurationUtils.getEmailIDs(emailIDs), ConfigurationUtils.getUIDs(uids),
+                        ConfigurationUtils.getUIDValidity(uidValidity), Flags.Flag.DELETED, false);
+            } else if (StringUtils.isNotEmpty(uid)) {
+                status = EmailOperationUtils.changeEmailState(connection, folder, ConfigurationUtils.getUID(uid),
+                        ConfigurationUtils.getUIDValidity(uidValidity), Flags.Flag.DELETED, false);
+            } else {
+                status = EmailOperationUtils.changeEmailState(connection, folder, emailID, Flags.Flag.DELETED, false);
+            }
             ResponseHandler.generateOutput(messageContext, status);
         } catch (EmailConnectionException | EmailConnectionPoolException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
@@ -19,21 +19,26 @@ package org.wso2.carbon.connector.operations;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
-import org.wso2.carbon.connector.connection.EmailConnection;
 import org.wso2.carbon.connector.connection.EmailConnectionManager;
+import org.wso2.carbon.connector.connection.EmailConnectionPool;
+import org.wso2.carbon.connector.connection.SMTPConnection;
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.exception.ContentBuilderException;
 import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.connector.pojo.RecipientStatus;
 import org.wso2.carbon.connector.utils.ConfigurationUtils;
 import org.wso2.carbon.connector.utils.EmailConstants;
 import org.wso2.carbon.connector.utils.Error;
 import org.wso2.carbon.connector.utils.MessageBuilder;
+import org.wso2.carbon.connector.utils.MessageTemplate;
 import org.wso2.carbon.connector.utils.ResponseHandler;
 
 import java.io.IOException;
+import java.util.List;
 import javax.mail.MessagingException;
-import javax.mail.Transport;
+import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 
 import static java.lang.String.format;
@@ -46,12 +51,46 @@ public class EmailSend extends AbstractConnector {
     @Override
     public void connect(MessageContext messageContext) {
 
+        EmailConnectionPool pool = null;
+        SMTPConnection connection = null;
         try {
             String name = ConfigurationUtils.getConnectionName(messageContext);
-            EmailConnection connection = EmailConnectionManager.getEmailConnectionManager().getConnection(name);
-            sendMessage(messageContext, connection);
-            ResponseHandler.generateOutput(messageContext, true);
-        } catch (EmailConnectionException e) {
+            EmailConnectionManager manager = EmailConnectionManager.getEmailConnectionManager();
+            String deliveryMode = (String) getParameter(messageContext, EmailConstants.DELIVERY_MODE);
+            if (EmailConstants.DELIVERY_MODE_ASYNC.equalsIgnoreCase(deliveryMode)) {
+                // The email is sent in the background, hence the mediation thread does not wait for the server
+                MimeMessage message = buildMessage(messageContext, manager.getConnection(name).getSession());
+                String trackingId = manager.getAsyncEmailSender(name).submit(message);
+                if (log.isDebugEnabled()) {
+                    log.debug(format("Email was queued to be sent with tracking ID: %s", trackingId));
+                }
+                ResponseHandler.setTrackingIdResponse(messageContext, trackingId);
+            } else if (EmailConstants.DELIVERY_MODE_SPOOL.equalsIgnoreCase(deliveryMode)) {
+                // The email is written to disk before returning, hence is sent even if the relay is unavailable
+                MimeMessage message = buildMessage(messageContext, manager.getConnection(name).getSession());
+                String trackingId = manager.getEmailSpool(name).submit(message);
+                if (log.isDebugEnabled()) {
+                    log.debug(format("Email was spooled to be sent with tracking ID: %s", trackingId));
+                }
+                ResponseHandler.setTrackingIdResponse(messageContext, trackingId);
+            } else if (Boolean.parseBoolean((String) getParameter(messageContext, EmailConstants.FAN_OUT))) {
+                // Each recipient domain is sent to in parallel, hence a slow domain does not delay the others
+                MimeMessage message = buildMessage(messageContext, manager.getConnection(name).getSession());
+                List<RecipientStatus> statuses;
+                try {
+                    statuses = manager.getDomainFanOutSender(name).send(message);
+                } catch (MessagingException e) {
+                    throw new EmailConnectionException(format("Error occurred while sending the email. %s",
+                            e.getMessage()), e);
+                }
+                ResponseHandler.setRecipientStatusResponse(statuses, messageContext);
+            } else {
+                pool = manager.getConnectionPool(name);
+                connection = (SMTPConnection) pool.borrowObject();
+                sendMessage(messageContext, connection);
+                ResponseHandler.generateOutput(messageContext, true);
+            }
+        } catch (EmailConnectionException | EmailConnectionPoolException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
             handleException(e.getMessage(), e, messageContext);
         } catch (InvalidConfigurationException e) {
@@ -60,6 +99,10 @@ public class EmailSend extends AbstractConnector {
         } catch (ContentBuilderException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.RESPONSE_GENERATION);
             handleException(e.getMessage(), e, messageContext);
+        } finally {
+            if (pool != null) {
+                pool.returnObject(connection);
+            }
         }
     }
 
@@ -67,11 +110,30 @@ public class EmailSend extends AbstractConnector {
      * Sends an email
      *
      * @param messageContext The message context that is generated for sending the email
-     * @param session        Mail Session to be used
-     * @return a result status indicating whether the email send is successful or not
+     * @param connection     SMTP connection to send the email over
      */
-    private void sendMessage(MessageContext messageContext, EmailConnection session) throws EmailConnectionException,
-            InvalidConfigurationException {
+    private void sendMessage(MessageContext messageContext, SMTPConnection connection)
+            throws EmailConnectionException, InvalidConfigurationException {
+
+        MimeMessage message = buildMessage(messageContext, connection.getSession());
+        try {
+            connection.sendMessage(message);
+            log.debug("Email was sent successfully...");
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while sending the email. %s", e.getMessage()),
+                    e);
+        }
+    }
+
+    /**
+     * Builds the email to be sent
+     *
+     * @param messageContext The message context that is generated for sending the email
+     * @param session        Session of the connection the email is sent over
+     * @return Email built
+     */
+    private MimeMessage buildMessage(MessageContext messageContext, Session session)
+            throws EmailConnectionException, InvalidConfigurationException {
 
         String to = (String) getParameter(messageContext, EmailConstants.TO);
         String from = (String) getParameter(messageContext, EmailConstants.FROM);
@@ -88,28 +150,35 @@ public class EmailSend extends AbstractConnector {
         if (StringUtils.isEmpty(to)) {
             throw new InvalidConfigurationException("Error occurred while sending the email. " +
                     "Mandatory parameter 'To' is not provided.");
-        } else {
-            try {
-                //TODO: Set headers from transport properties
-                MimeMessage message = MessageBuilder.newMessage(session.getSession())
-                        .to(to)
-                        .fromAddresses(from)
-                        .cc(cc)
-                        .bcc(bcc)
-                        .replyTo(replyTo)
-                        .withSubject(subject)
-                        .withBody(content, contentType, encoding, contentTransferEncoding)
-                        .withAttachments(attachments)
-                        .build();
-                Transport.send(message);
-                log.debug("Email was sent successfully...");
-            } catch (MessagingException e) {
-                throw new EmailConnectionException(format("Error occurred while sending the email. %s", e.getMessage()),
-                        e);
-            } catch (IOException e) {
-                throw new EmailConnectionException(format("Error occurred while adding attachments to the email. %s"
-                        , e.getMessage()), e);
+        }
+        try {
+            String templateName = (String) getParameter(messageContext, EmailConstants.TEMPLATE_NAME);
+            if (StringUtils.isNotEmpty(templateName)) {
+                // Placeholders of the template are filled with the values of the message context properties
+                MessageTemplate template = MessageTemplate.getTemplate(templateName, from, to, cc, bcc, replyTo,
+                        subject, content, contentType, encoding, contentTransferEncoding);
+                return MessageBuilder.newMessage(session, template, property -> {
+                    Object value = messageContext.getProperty(property);
+                    return value != null ? value.toString() : null;
+                }).withAttachments(attachments, messageContext).build();
             }
+            //TODO: Set headers from transport properties
+            return MessageBuilder.newMessage(session)
+                    .to(to)
+                    .fromAddresses(from)
+                    .cc(cc)
+                    .bcc(bcc)
+                    .replyTo(replyTo)
+                    .withSubject(subject)
+                    .withBody(content, contentType, encoding, contentTransferEncoding)
+                    .withAttachments(attachments, messageContext)
+                    .build();
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while building the email. %s", e.getMessage()),
+                    e);
+        } catch (IOException e) {
+            throw new EmailConnectionException(format("Error occurred while adding attachments to the email. %s"
+                    , e.getMessage()), e);
         }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.operations;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.commons.lang.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.wso2.carbon.connector.connection.EmailConnectionManager;
+import org.wso2.carbon.connector.connection.EmailConnectionPool;
+import org.wso2.carbon.connector.connection.SMTPConnection;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.connector.pojo.SendStatus;
+import org.wso2.carbon.connector.utils.ConfigurationUtils;
+import org.wso2.carbon.connector.utils.EmailConstants;
+import org.wso2.carbon.connector.utils.Error;
+import org.wso2.carbon.connector.utils.MessageBuilder;
+import org.wso2.carbon.connector.utils.ResponseHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.MimeMessage;
+import javax.xml.stream.XMLStreamException;
+
+import static java.lang.String.format;
+
+/**
+ * Sends a batch of emails over a single pooled SMTP connection.
+ * <p>
+ * The emails are read from the 'messages' parameter, or from the payload if the parameter is not provided. Each child
+ * element of the root element is an email, with the same fields as the send operation, e.g.
+ * {@code {"messages": [{"to": "...", "subject": "...", "content": "..."}]}}.
+ */
+public class EmailSendBatch extends AbstractConnector {
+
+    @Override
+    public void connect(MessageContext messageContext) {
+
+        EmailConnectionPool pool = null;
+        SMTPConnection connection = null;
+        try {
+            List<Map<String, String>> messages = getMessages(messageContext);
+            String name = ConfigurationUtils.getConnectionName(messageContext);
+            pool = EmailConnectionManager.getEmailConnectionManager().getConnectionPool(name);
+            connection = (SMTPConnection) pool.borrowObject();
+            List<SendStatus> statuses = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                MimeMessage message;
+                try {
+                    message = buildMessage(messages.get(i), connection, messageContext);
+                } catch (MessagingException | IOException | InvalidConfigurationException e) {
+                    // Only this email is invalid, hence the connection is kept
+                    statuses.add(new SendStatus(i, false, e.getMessage()));
+                    continue;
+                }
+                try {
+                    connection.sendMessage(message);
+                    statuses.add(new SendStatus(i, true, null));
+                } catch (SendFailedException e) {
+                    // The recipients were rejected, but the connection is still usable
+                    statuses.add(new SendStatus(i, false, e.getMessage()));
+                } catch (MessagingException e) {
+                    statuses.add(new SendStatus(i, false, e.getMessage()));
+                    // The connection may be broken, hence it is returned to the pool, which validates it when it is
+                    // borrowed again and replaces it if it is broken
+                    pool.returnObject(connection);
+                    connection = null;
+                    try {
+                        connection = (SMTPConnection) pool.borrowObject();
+                    } catch (EmailConnectionPoolException ex) {
+                        for (int j = i + 1; j < messages.size(); j++) {
+                            statuses.add(new SendStatus(j, false, ex.getMessage()));
+                        }
+                        break;
+                    }
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(format("Sent batch of %d emails.", messages.size()));
+            }
+            ResponseHandler.setSendBatchResponse(statuses, messageContext);
+        } catch (EmailConnectionException | EmailConnectionPoolException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
+            handleException(e.getMessage(), e, messageContext);
+        } catch (InvalidConfigurationException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.INVALID_CONFIGURATION);
+            handleException(e.getMessage(), e, messageContext);
+        } finally {
+            if (pool != null && connection != null) {
+                pool.returnObject(connection);
+            }
+        }
+    }
+
+    /**
+     * Builds an email to be sent over the given connection
+     *
+     * @param fields         Fields of the email
+     * @param connection     SMTP connection the email is to be sent over
+     * @param messageContext The message context the attachments are resolved from
+     * @return Email
+     * @throws InvalidConfigurationException if the recipients are not provided
+     * @throws MessagingException            if failed to build the email, e.g. an address is invalid
+     * @throws IOException                   if failed to add the attachments to the email
+     */
+    private MimeMessage buildMessage(Map<String, String> fields, SMTPConnection connection,
+                                     MessageContext messageContext)
+            throws InvalidConfigurationException, MessagingException, IOException {
+
+        String to = fields.get(EmailConstants.TO);
+        if (StringUtils.isEmpty(to)) {
+            throw new InvalidConfigurationException("Error occurred while sending the email. " +
+                    "Mandatory field 'to' is not provided.");
+        }
+        return MessageBuilder.newMessage(connection.getSession())
+                .to(to)
+                .fromAddresses(fields.get(EmailConstants.FROM))
+                .cc(fields.get(EmailConstants.CC))
+                .bcc(fields.get(EmailConstants.BCC))
+                .replyTo(fields.get(EmailConstants.REPLY_TO))
+                .withSubject(fields.get(EmailConstants.SUBJECT))
+                .withBody(fields.get(EmailConstants.CONTENT), fields.get(EmailConstants.CONTENT_TYPE),
+                        fields.get(EmailConstants.ENCODING), fields.get(EmailConstants.CONTENT_TRANSFER_ENCODING))
+                .withAttachments(fields.get(EmailConstants.ATTACHMENTS), messageContext)
+                .build();
+    }
+
+    /**
+     * Reads the fields of each email in the batch
+     *
+     * @param messageContext The message context that is processed
+     * @return Fields of each email, by field name
+     * @throws InvalidConfigurationException if the emails could not be read
+     */
+    private List<Map<String, String>> getMessages(MessageContext messageContext)
+            throws InvalidConfigurationException {
+
+        OMElement root = getMessagesElement(messageContext);
+        if (root == null) {
+            throw new InvalidConfigurationException("Error occurred while sending the emails. " +
+                    "No emails are provided in the parameter 'messages' or in the payload.");
+        }
+        List<Map<String, String>> messages = new ArrayList<>();
+        for (Iterator messageElements = root.getChildElements(); messageElements.hasNext(); ) {
+            OMElement messageElement = (OMElement) messageElements.next();
+            Map<String, String> fields = new HashMap<>();
+            for (Iterator fieldElements = messageElement.getChildElements(); fieldElements.hasNext(); ) {
+                OMElement fieldElement = (OMElement) fieldElements.next();
+                fields.put(fieldElement.getLocalName(), fieldElement.getText());
+            }
+            messages.add(fields);
+        }
+        return messages;
+    }
+
+    /**
+     * Gets the element containing the emails, from the 'messages' parameter or from the payload
+     *
+     * @param messageContext The message context that is processed
+     * @return Element containing an element for each email, or null if there are none
+     * @throws InvalidConfigurationException if the emails could not be parsed
+     */
+    private OMElement getMessagesElement(MessageContext messageContext) throws InvalidConfigurationException {
+
+        String messages = (String) getParameter(messageContext, EmailConstants.MESSAGES);
+        try {
+            if (StringUtils.isNotEmpty(messages)) {
+                String trimmed = messages.trim();
+                if (trimmed.startsWith("<")) {
+                    return AXIOMUtil.stringToOM(trimmed);
+                }
+                return JsonUtil.toXml(new ByteArrayInputStream(trimmed.getBytes(StandardCharsets.UTF_8)), false);
+            }
+            RelayUtils.buildMessage(((Axis2MessageContext) messageContext).getAxis2MessageContext());
+            return messageContext.getEnvelope().getBody().getFirstElement();
+        } catch (XMLStreamException | IOException e) {
+            throw new InvalidConfigurationException(format("Error occurred while reading the emails to be sent. %s",
+                    e.getMessage()), e);
+        }
+    }
+}
@@ -17,19 +17,27 @@
  */
 package org.wso2.carbon.connector.operations.list;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.exception.ContentBuilderException;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.exception.EmailNotFoundException;
+import org.wso2.carbon.connector.exception.EmailParsingException;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.Attachment;
 import org.wso2.carbon.connector.pojo.EmailMessage;
+import org.wso2.carbon.connector.utils.ConfigurationUtils;
 import org.wso2.carbon.connector.utils.ContentBuilder;
 import org.wso2.carbon.connector.utils.EmailConstants;
+import org.wso2.carbon.connector.utils.EmailContentLoader;
 import org.wso2.carbon.connector.utils.EmailOperationUtils;
 import org.wso2.carbon.connector.utils.EmailPropertyNames;
 import org.wso2.carbon.connector.utils.Error;
 import org.wso2.carbon.connector.utils.ResponseHandler;
 
+import java.io.InputStream;
 import java.util.List;
 
 import static java.lang.String.format;
@@ -46,11 +54,13 @@ public class EmailGetAttachment extends AbstractConnector {
 
         String emailIndex = (String) getParameter(messageContext, EmailConstants.EMAIL_INDEX);
         String attachmentIndex = (String) getParameter(messageContext, EmailConstants.ATTACHMENT_INDEX);
+        boolean streaming = Boolean.parseBoolean((String) getParameter(messageContext, EmailConstants.STREAMING));
+        String streamBufferSize = (String) getParameter(messageContext, EmailConstants.STREAM_BUFFER_SIZE);
         List<EmailMessage> emailMessages = (List<EmailMessage>) messageContext
                 .getProperty(EmailPropertyNames.PROPERTY_EMAILS);
 
         if (emailIndex != null && attachmentIndex != null && emailMessages != null) {
-            setAttachment(messageContext, emailIndex, attachmentIndex, emailMessages);
+            setAttachment(messageContext, emailIndex, attachmentIndex, emailMessages, streaming, streamBufferSize);
         } else if (emailIndex == null) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.INVALID_CONFIGURATION);
             handleException(format("%s Email Index is not set.", ERROR), messageContext);
@@ -67,13 +77,15 @@ public class EmailGetAttachment extends AbstractConnector {
     /**
      * Set attachment in body
      *
-     * @param messageContext  Message Context
-     * @param emailIndex      Email Index
-     * @param attachmentIndex Attachment Indec
-     * @param emailMessages   List of emails
+     * @param messageContext   Message Context
+     * @param emailIndex       Email Index
+     * @param attachmentIndex  Attachment Indec
+     * @param emailMessages    List of emails
+     * @param streaming        whether to stream the attachment content from the server
+     * @param streamBufferSize maximum size in bytes of streamed content held in memory, or null for the default
      */
     private void setAttachment(MessageContext messageContext, String emailIndex, String attachmentIndex,
-                               List<EmailMessage> emailMessages) {
+                               List<EmailMessage> emailMessages, boolean streaming, String streamBufferSize) {
 
         if (log.isDebugEnabled()) {
             log.debug(format("Retrieving email attachment for email at index %s and attachment at index %s...",
@@ -85,13 +97,36 @@ public class EmailGetAttachment extends AbstractConnector {
                 Attachment attachment = EmailOperationUtils.getEmailAttachment(emailMessage, attachmentIndex);
                 if (attachment != null) {
                     setProperties(messageContext, attachment);
-                    ContentBuilder.buildContent(messageContext, attachment.getContent(),
-                            attachment.getContentType());
+                    if (streaming && attachment.getContent() == null && attachment.getPartPath() != null) {
+                        // Attachment of a lazily listed email, which is streamed without being held in memory
+                        InputStream content = EmailContentLoader.openAttachmentStream(emailMessage, attachment,
+                                ConfigurationUtils.getStreamBufferSize(streamBufferSize));
+                        try {
+                            ContentBuilder.buildContent(messageContext, content, attachment.getContentType(), true);
+                        } catch (ContentBuilderException e) {
+                            // Deletes the temporary file of the content, if any
+                            IOUtils.closeQuietly(content);
+                            throw e;
+                        }
+                    } else {
+                        EmailContentLoader.loadAttachment(emailMessage, attachment);
+                        ContentBuilder.buildContent(messageContext, attachment.getContent(),
+                                attachment.getContentType(), streaming);
+                    }
                 }
             }
         } catch (InvalidConfigurationException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.INVALID_CONFIGURATION);
             handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailConnectionException | EmailConnectionPoolException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailNotFoundException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.EMAIL_NOT_FOUND);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailParsingException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.RESPONSE_GENERATION);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
         } catch (ContentBuilderException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.RESPONSE_GENERATION);
             handleException("Error occurred during setting attachment content.", e, messageContext);
@@ -19,9 +19,14 @@ package org.wso2.carbon.connector.operations.list;
 
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.exception.EmailNotFoundException;
+import org.wso2.carbon.connector.exception.EmailParsingException;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.EmailMessage;
 import org.wso2.carbon.connector.utils.EmailConstants;
+import org.wso2.carbon.connector.utils.EmailContentLoader;
 import org.wso2.carbon.connector.utils.EmailOperationUtils;
 import org.wso2.carbon.connector.utils.EmailPropertyNames;
 import org.wso2.carbon.connector.utils.Error;
@@ -52,6 +57,7 @@ public class EmailGetBody extends AbstractConnector {
                     if (log.isDebugEnabled()) {
                         log.debug(format("Retrieving email body for email at index %s...", emailIndex));
                     }
+                    EmailContentLoader.loadBody(emailMessage);
                     setProperties(messageContext, emailMessage);
                 }
             } else if (emailIndex == null) {
@@ -65,6 +71,15 @@ public class EmailGetBody extends AbstractConnector {
         } catch (InvalidConfigurationException e) {
             ResponseHandler.setErrorsInMessage(messageContext, Error.INVALID_CONFIGURATION);
             handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailConnectionException | EmailConnectionPoolException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.CONNECTIVITY);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailNotFoundException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.EMAIL_NOT_FOUND);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
+        } catch (EmailParsingException e) {
+            ResponseHandler.setErrorsInMessage(messageContext, Error.RESPONSE_GENERATION);
+            handleException(ERROR + " " + e.getMessage(), e, messageContext);
         }
     }
 
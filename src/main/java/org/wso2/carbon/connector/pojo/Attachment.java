@@ -17,6 +17,8 @@
  */
 package org.wso2.carbon.connector.pojo;
 
+import org.wso2.carbon.connector.utils.SpilledContent;
+
 import java.io.InputStream;
 
 /**
@@ -27,6 +29,8 @@ public class Attachment {
     private String name;
     private String contentType;
     private InputStream content;
+    private String partPath;
+    private SpilledContent spilledContent;
 
     public String getName() {
 
@@ -57,4 +61,24 @@ public class Attachment {
 
         this.content = content;
     }
+
+    public String getPartPath() {
+
+        return partPath;
+    }
+
+    public void setPartPath(String partPath) {
+
+        this.partPath = partPath;
+    }
+
+    public SpilledContent getSpilledContent() {
+
+        return spilledContent;
+    }
+
+    public void setSpilledContent(SpilledContent spilledContent) {
+
+        this.spilledContent = spilledContent;
+    }
 }
@@ -21,6 +21,10 @@ import org.wso2.carbon.connector.connection.EmailProtocol;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.utils.EmailConstants;
 
+import java.util.Locale;
+
+import static java.lang.String.format;
+
 /**
  * Configuration parameters used to establish a connection to the email server
  */
@@ -48,6 +52,22 @@ public class ConnectionConfiguration {
     private String exhaustedAction;
     private String initialisationPolicy;
     private boolean disablePooling;
+    private int maxOpenFolders;
+    private boolean keepFoldersOpen;
+    private String fetchSize;
+    private int asyncQueueCapacity;
+    private int asyncSenderThreads;
+    private String asyncBackPressure;
+    private String spoolDirectory;
+    private long spoolSegmentSize;
+    private long spoolRetryInterval;
+    private long spoolMaxRetryInterval;
+    private Integer spoolMaxRetries;
+    private int domainConcurrency;
+    private double domainRateLimit;
+    private boolean deferredExpunge;
+    private int expungeBatchSize;
+    private long expungeInterval;
 
     public String getHost() {
 
@@ -287,4 +307,203 @@ public class ConnectionConfiguration {
 
         this.disablePooling = disablePooling;
     }
+
+    public int getMaxOpenFolders() {
+        if (this.maxOpenFolders == 0){
+            this.maxOpenFolders = EmailConstants.DEFAULT_MAX_OPEN_FOLDERS;
+        }
+        return maxOpenFolders;
+    }
+
+    public void setMaxOpenFolders(int maxOpenFolders) {
+
+        this.maxOpenFolders = maxOpenFolders;
+    }
+
+    public boolean isKeepFoldersOpen() {
+
+        return keepFoldersOpen;
+    }
+
+    public void setKeepFoldersOpen(boolean keepFoldersOpen) {
+
+        this.keepFoldersOpen = keepFoldersOpen;
+    }
+
+    public String getFetchSize() {
+
+        return fetchSize;
+    }
+
+    public void setFetchSize(String fetchSize) {
+
+        this.fetchSize = fetchSize;
+    }
+
+    public int getAsyncQueueCapacity() {
+
+        if (this.asyncQueueCapacity <= 0) {
+            this.asyncQueueCapacity = EmailConstants.DEFAULT_ASYNC_QUEUE_CAPACITY;
+        }
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public int getAsyncSenderThreads() {
+
+        if (this.asyncSenderThreads <= 0) {
+            this.asyncSenderThreads = EmailConstants.DEFAULT_ASYNC_SENDER_THREADS;
+        }
+        return asyncSenderThreads;
+    }
+
+    public void setAsyncSenderThreads(int asyncSenderThreads) {
+
+        this.asyncSenderThreads = asyncSenderThreads;
+    }
+
+    public String getAsyncBackPressure() {
+
+        if (this.asyncBackPressure == null) {
+            this.asyncBackPressure = EmailConstants.BACK_PRESSURE_BLOCK;
+        }
+        return asyncBackPressure;
+    }
+
+    public void setAsyncBackPressure(String asyncBackPressure) throws InvalidConfigurationException {
+
+        if (asyncBackPressure != null
+                && !EmailConstants.BACK_PRESSURE_BLOCK.equalsIgnoreCase(asyncBackPressure)
+                && !EmailConstants.BACK_PRESSURE_REJECT.equalsIgnoreCase(asyncBackPressure)
+                && !EmailConstants.BACK_PRESSURE_SPILL.equalsIgnoreCase(asyncBackPressure)) {
+            throw new InvalidConfigurationException(format("Invalid asynchronous back-pressure policy: %s. " +
+                    "Supported policies are BLOCK, REJECT and SPILL.", asyncBackPressure));
+        }
+        this.asyncBackPressure = asyncBackPressure == null ? null : asyncBackPressure.toUpperCase(Locale.ROOT);
+    }
+
+    public String getSpoolDirectory() {
+
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public long getSpoolSegmentSize() {
+
+        if (this.spoolSegmentSize <= 0) {
+            this.spoolSegmentSize = EmailConstants.DEFAULT_SPOOL_SEGMENT_SIZE;
+        }
+        return spoolSegmentSize;
+    }
+
+    public void setSpoolSegmentSize(long spoolSegmentSize) {
+
+        this.spoolSegmentSize = spoolSegmentSize;
+    }
+
+    public long getSpoolRetryInterval() {
+
+        if (this.spoolRetryInterval <= 0) {
+            this.spoolRetryInterval = EmailConstants.DEFAULT_SPOOL_RETRY_INTERVAL;
+        }
+        return spoolRetryInterval;
+    }
+
+    public void setSpoolRetryInterval(long spoolRetryInterval) {
+
+        this.spoolRetryInterval = spoolRetryInterval;
+    }
+
+    public long getSpoolMaxRetryInterval() {
+
+        if (this.spoolMaxRetryInterval <= 0) {
+            this.spoolMaxRetryInterval = EmailConstants.DEFAULT_SPOOL_MAX_RETRY_INTERVAL;
+        }
+        return spoolMaxRetryInterval;
+    }
+
+    public void setSpoolMaxRetryInterval(long spoolMaxRetryInterval) {
+
+        this.spoolMaxRetryInterval = spoolMaxRetryInterval;
+    }
+
+    public int getSpoolMaxRetries() {
+
+        if (this.spoolMaxRetries == null) {
+            this.spoolMaxRetries = EmailConstants.DEFAULT_SPOOL_MAX_RETRIES;
+        }
+        return spoolMaxRetries;
+    }
+
+    public void setSpoolMaxRetries(int spoolMaxRetries) {
+
+        this.spoolMaxRetries = spoolMaxRetries;
+    }
+
+    public int getDomainConcurrency() {
+
+        if (this.domainConcurrency <= 0) {
+            this.domainConcurrency = EmailConstants.DEFAULT_DOMAIN_CONCURRENCY;
+        }
+        return domainConcurrency;
+    }
+
+    public void setDomainConcurrency(int domainConcurrency) {
+
+        this.domainConcurrency = domainConcurrency;
+    }
+
+    public double getDomainRateLimit() {
+
+        return domainRateLimit;
+    }
+
+    public void setDomainRateLimit(double domainRateLimit) {
+
+        this.domainRateLimit = domainRateLimit;
+    }
+
+    public boolean isDeferredExpunge() {
+
+        return deferredExpunge;
+    }
+
+    public void setDeferredExpunge(boolean deferredExpunge) {
+
+        this.deferredExpunge = deferredExpunge;
+    }
+
+    public int getExpungeBatchSize() {
+
+        if (this.expungeBatchSize <= 0) {
+            this.expungeBatchSize = EmailConstants.DEFAULT_EXPUNGE_BATCH_SIZE;
+        }
+        return expungeBatchSize;
+    }
+
+    public void setExpungeBatchSize(int expungeBatchSize) {
+
+        this.expungeBatchSize = expungeBatchSize;
+    }
+
+    public long getExpungeInterval() {
+
+        if (this.expungeInterval <= 0) {
+            this.expungeInterval = EmailConstants.DEFAULT_EXPUNGE_INTERVAL;
+        }
+        return expungeInterval;
+    }
+
+    public void setExpungeInterval(long expungeInterval) {
+
+        this.expungeInterval = expungeInterval;
+    }
 }
@@ -36,6 +36,14 @@ public class EmailMessage {
     private String htmlContent;
     private String textContent;
     private List<Attachment> attachments;
+    private String connectionName;
+    private String folder;
+    private long uidValidity;
+    private long uid;
+    private String textPartPath;
+    private String htmlPartPath;
+    private boolean contentLoaded = true;
+    private int spillThreshold = -1;
 
     public String getHtmlContent() {
 
@@ -135,6 +143,86 @@ public class EmailMessage {
         this.replyTo = replyTo;
     }
 
+    public String getConnectionName() {
+
+        return connectionName;
+    }
+
+    public void setConnectionName(String connectionName) {
+
+        this.connectionName = connectionName;
+    }
+
+    public String getFolder() {
+
+        return folder;
+    }
+
+    public void setFolder(String folder) {
+
+        this.folder = folder;
+    }
+
+    public long getUidValidity() {
+
+        return uidValidity;
+    }
+
+    public void setUidValidity(long uidValidity) {
+
+        this.uidValidity = uidValidity;
+    }
+
+    public long getUid() {
+
+        return uid;
+    }
+
+    public void setUid(long uid) {
+
+        this.uid = uid;
+    }
+
+    public String getTextPartPath() {
+
+        return textPartPath;
+    }
+
+    public void setTextPartPath(String textPartPath) {
+
+        this.textPartPath = textPartPath;
+    }
+
+    public String getHtmlPartPath() {
+
+        return htmlPartPath;
+    }
+
+    public void setHtmlPartPath(String htmlPartPath) {
+
+        this.htmlPartPath = htmlPartPath;
+    }
+
+    public boolean isContentLoaded() {
+
+        return contentLoaded;
+    }
+
+    public void setContentLoaded(boolean contentLoaded) {
+
+        this.contentLoaded = contentLoaded;
+    }
+
+    public int getSpillThreshold() {
+
+        return spillThreshold;
+    }
+
+    public void setSpillThreshold(int spillThreshold) {
+
+        this.spillThreshold = spillThreshold;
+    }
+
     private String getAddressListAsString(List<Address> addresses) {
 
         return String.join(",", addresses.stream().map(Address::toString).collect(Collectors.toList()));
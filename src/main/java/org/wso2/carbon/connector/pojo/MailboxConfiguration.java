@@ -17,6 +17,8 @@
  */
 package org.wso2.carbon.connector.pojo;
 
+import javax.mail.FetchProfile;
+
 /**
  * Configuration parameters used to connect to a mailbox folder in the email server
  */
@@ -36,6 +38,12 @@ public class MailboxConfiguration {
     private String fromRegex;
     private int offset;
     private int limit;
+    private boolean serverSidePagination;
+    private String continuationToken;
+    private FetchProfile fetchProfile;
+    private boolean lazyLoad;
+    private int spillThreshold;
+    private int parseParallelism;
 
     public String getFolder() {
 
@@ -176,4 +184,64 @@ public class MailboxConfiguration {
 
         this.limit = limit;
     }
+
+    public boolean getServerSidePagination() {
+
+        return serverSidePagination;
+    }
+
+    public void setServerSidePagination(boolean serverSidePagination) {
+
+        this.serverSidePagination = serverSidePagination;
+    }
+
+    public String getContinuationToken() {
+
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+
+        this.continuationToken = continuationToken;
+    }
+
+    public FetchProfile getFetchProfile() {
+
+        return fetchProfile;
+    }
+
+    public void setFetchProfile(FetchProfile fetchProfile) {
+
+        this.fetchProfile = fetchProfile;
+    }
+
+    public boolean getLazyLoad() {
+
+        return lazyLoad;
+    }
+
+    public void setLazyLoad(boolean lazyLoad) {
+
+        this.lazyLoad = lazyLoad;
+    }
+
+    public int getSpillThreshold() {
+
+        return spillThreshold;
+    }
+
+    public void setSpillThreshold(int spillThreshold) {
+
+        this.spillThreshold = spillThreshold;
+    }
+
+    public int getParseParallelism() {
+
+        return parseParallelism;
+    }
+
+    public void setParseParallelism(int parseParallelism) {
+
+        this.parseParallelism = parseParallelism;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.pojo;
+
+/**
+ * Outcome of sending an email to a recipient
+ */
+public class RecipientStatus {
+
+    private String address;
+    private boolean success;
+    private String error;
+
+    public RecipientStatus(String address, boolean success, String error) {
+
+        this.address = address;
+        this.success = success;
+        this.error = error;
+    }
+
+    public String getAddress() {
+
+        return address;
+    }
+
+    public boolean isSuccess() {
+
+        return success;
+    }
+
+    public String getError() {
+
+        return error;
+    }
+}
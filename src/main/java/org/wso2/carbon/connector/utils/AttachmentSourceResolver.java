@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.axiom.attachments.Attachments;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMText;
+import org.apache.commons.lang.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.xml.stream.XMLStreamException;
+
+import static java.lang.String.format;
+
+/**
+ * Resolves attachments that are not local files, so that content already held by the mediation flow is streamed
+ * into the email without being written to disk. The supported sources are:
+ * <ul>
+ * <li>{@code property:<name>} - a message context property holding a DataHandler, bytes or base64 encoded text</li>
+ * <li>{@code attachment:<content-id>} - an MTOM/SwA attachment of the current message</li>
+ * <li>{@code payload} - the binary content of the current payload</li>
+ * </ul>
+ */
+public final class AttachmentSourceResolver {
+
+    private static final String PROPERTY_PREFIX = "property:";
+    private static final String ATTACHMENT_PREFIX = "attachment:";
+    private static final String PAYLOAD_SOURCE = "payload";
+    private static final String DEFAULT_NAME = "attachment";
+
+    private AttachmentSourceResolver() {
+
+    }
+
+    /**
+     * Checks whether an attachment refers to a source other than a local file
+     *
+     * @param source attachment
+     * @return true if the attachment is resolved by this resolver
+     */
+    public static boolean isSupported(String source) {
+
+        return source.startsWith(PROPERTY_PREFIX) || source.startsWith(ATTACHMENT_PREFIX)
+                || PAYLOAD_SOURCE.equals(source);
+    }
+
+    /**
+     * Resolves the content of an attachment
+     *
+     * @param messageContext The message context that is processed
+     * @param source         attachment
+     * @return content of the attachment
+     * @throws IOException if the content could not be resolved
+     */
+    public static DataSource resolve(MessageContext messageContext, String source) throws IOException {
+
+        if (source.startsWith(PROPERTY_PREFIX)) {
+            return resolveProperty(messageContext, source.substring(PROPERTY_PREFIX.length()));
+        } else if (source.startsWith(ATTACHMENT_PREFIX)) {
+            return resolveAttachment(messageContext, source.substring(ATTACHMENT_PREFIX.length()));
+        } else if (PAYLOAD_SOURCE.equals(source)) {
+            return resolvePayload(messageContext);
+        }
+        throw new IOException(format("Unsupported attachment source: %s.", source));
+    }
+
+    /**
+     * Resolves the content held by a message context property
+     *
+     * @param messageContext The message context that is processed
+     * @param name           name of the property
+     * @return content of the property
+     * @throws IOException if the property does not exist or holds an unsupported type of content
+     */
+    private static DataSource resolveProperty(MessageContext messageContext, String name) throws IOException {
+
+        Object value = messageContext.getProperty(name);
+        if (value == null) {
+            value = getAxis2MessageContext(messageContext).getProperty(name);
+        }
+        if (value == null) {
+            throw new FileNotFoundException(format("Attachment property: %s does not exist.", name));
+        }
+        if (value instanceof DataHandler) {
+            return named(((DataHandler) value).getDataSource(), name);
+        }
+        byte[] content;
+        if (value instanceof byte[]) {
+            content = (byte[]) value;
+        } else if (value instanceof String) {
+            try {
+                content = Base64.getMimeDecoder().decode(((String) value).getBytes(StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(format("Attachment property: %s is not base64 encoded. %s", name,
+                        e.getMessage()), e);
+            }
+        } else {
+            throw new IOException(format("Attachment property: %s holds unsupported content of type: %s.", name,
+                    value.getClass().getName()));
+        }
+        return new EmailAttachmentDataSource(name, content, ContentTypeDetector.detect(content, name));
+    }
+
+    /**
+     * Resolves an MTOM/SwA attachment of the current message
+     *
+     * @param messageContext The message context that is processed
+     * @param contentId      content ID of the attachment
+     * @return content of the attachment
+     * @throws IOException if the attachment does not exist
+     */
+    private static DataSource resolveAttachment(MessageContext messageContext, String contentId) throws IOException {
+
+        Attachments attachments = getAxis2MessageContext(messageContext).getAttachmentMap();
+        DataHandler dataHandler = attachments != null ? attachments.getDataHandler(contentId) : null;
+        if (dataHandler == null) {
+            throw new FileNotFoundException(format("Attachment with content ID: %s does not exist in the message.",
+                    contentId));
+        }
+        return named(dataHandler.getDataSource(), contentId);
+    }
+
+    /**
+     * Resolves the binary content of the current payload
+     *
+     * @param messageContext The message context that is processed
+     * @return content of the payload
+     * @throws IOException if the payload does not hold binary content
+     */
+    private static DataSource resolvePayload(MessageContext messageContext) throws IOException {
+
+        try {
+            RelayUtils.buildMessage(getAxis2MessageContext(messageContext));
+        } catch (XMLStreamException e) {
+            throw new IOException(format("Error occurred while building the payload. %s", e.getMessage()), e);
+        }
+        OMElement payload = messageContext.getEnvelope().getBody().getFirstElement();
+        OMNode content = payload != null ? payload.getFirstOMChild() : null;
+        if (!(content instanceof OMText) || !((OMText) content).isBinary()) {
+            throw new IOException("Payload does not hold binary content to be attached.");
+        }
+        return named(((DataHandler) ((OMText) content).getDataHandler()).getDataSource(), DEFAULT_NAME);
+    }
+
+    private static org.apache.axis2.context.MessageContext getAxis2MessageContext(MessageContext messageContext) {
+
+        return ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+    }
+
+    /**
+     * Ensures a data source has a name, which is used as the file name of the attachment
+     *
+     * @param dataSource  data source
+     * @param defaultName name used if the data source does not have one
+     * @return data source with a name
+     */
+    private static DataSource named(DataSource dataSource, String defaultName) {
+
+        if (StringUtils.isNotEmpty(dataSource.getName())) {
+            return dataSource;
+        }
+        return new DataSource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return dataSource.getInputStream();
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                return dataSource.getOutputStream();
+            }
+
+            @Override
+            public String getContentType() {
+                return dataSource.getContentType();
+            }
+
+            @Override
+            public String getName() {
+                return defaultName;
+            }
+        };
+    }
+}
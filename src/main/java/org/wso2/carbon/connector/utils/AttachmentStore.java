@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.wso2.carbon.connector.pojo.Attachment;
+import org.wso2.carbon.connector.pojo.EmailMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Stores attachment content in memory, or in a temporary file if it exceeds the spill threshold
+ */
+public final class AttachmentStore {
+
+    private AttachmentStore() {
+
+    }
+
+    /**
+     * Reads the attachment content and sets it in the attachment. Content larger than the threshold is written to
+     * a temporary file and read back from the file when requested.
+     *
+     * @param attachment Attachment to set the content in
+     * @param content    Content of the attachment
+     * @param threshold  Maximum size in bytes of content held in memory, or a negative value to never spill
+     * @throws IOException if failed to read or spill the content
+     */
+    public static void store(Attachment attachment, InputStream content, int threshold) throws IOException {
+
+        if (threshold < 0) {
+            attachment.setContent(new ByteArrayInputStream(IOUtils.toByteArray(content)));
+            return;
+        }
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        long count = IOUtils.copyLarge(content, head, 0, threshold + 1L);
+        if (count <= threshold) {
+            attachment.setContent(new ByteArrayInputStream(head.toByteArray()));
+        } else {
+            spill(attachment, head.toByteArray(), content);
+        }
+    }
+
+    /**
+     * Sets content that is already held in memory in the attachment, spilling it to a temporary file if it exceeds
+     * the threshold so that it is not retained in memory
+     *
+     * @param attachment Attachment to set the content in
+     * @param content    In memory content of the attachment
+     * @param threshold  Maximum size in bytes of content retained in memory, or a negative value to never spill
+     * @throws IOException if failed to spill the content
+     */
+    public static void storeInMemoryContent(Attachment attachment, InputStream content, int threshold)
+            throws IOException {
+
+        if (threshold < 0 || content.available() <= threshold) {
+            attachment.setContent(content);
+        } else {
+            spill(attachment, new byte[0], content);
+        }
+    }
+
+    /**
+     * Releases the spilled content of the attachments of the emails
+     *
+     * @param emailMessages Emails to be released
+     */
+    public static void release(List<?> emailMessages) {
+
+        if (emailMessages == null) {
+            return;
+        }
+        for (Object email : emailMessages) {
+            if (!(email instanceof EmailMessage)) {
+                continue;
+            }
+            EmailMessage emailMessage = (EmailMessage) email;
+            if (emailMessage.getAttachments() == null) {
+                continue;
+            }
+            for (Attachment attachment : emailMessage.getAttachments()) {
+                SpilledContent spilledContent = attachment.getSpilledContent();
+                if (spilledContent != null) {
+                    attachment.setSpilledContent(null);
+                    spilledContent.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the content to a temporary file and sets a stream reading from the file in the attachment
+     *
+     * @param attachment Attachment to set the content in
+     * @param head       Content already read from the stream
+     * @param content    Remaining content
+     * @throws IOException if failed to spill the content
+     */
+    private static void spill(Attachment attachment, byte[] head, InputStream content) throws IOException {
+
+        SpilledContent spilledContent = SpilledContent.create(head, content);
+        attachment.setSpilledContent(spilledContent);
+        attachment.setContent(spilledContent.openStream());
+    }
+}
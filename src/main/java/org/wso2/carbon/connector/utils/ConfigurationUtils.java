@@ -17,6 +17,7 @@
  */
 package org.wso2.carbon.connector.utils;
 
+import com.sun.mail.imap.IMAPFolder;
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.connection.EmailProtocol;
@@ -25,6 +26,14 @@ import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
 import org.wso2.carbon.connector.pojo.MailboxConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.mail.FetchProfile;
+import javax.mail.UIDFolder;
+
+import static java.lang.String.format;
+
 /**
  * Utils for reading configurations from operations
  */
@@ -69,11 +78,27 @@ public final class ConfigurationUtils {
                 EmailConstants.OFFSET);
         String limit = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
                 EmailConstants.LIMIT);
+        String serverSidePagination = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SERVER_SIDE_PAGINATION);
+        String continuationToken = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.CONTINUATION_TOKEN);
+        String fetchProfile = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.FETCH_PROFILE);
+        String lazyLoad = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.LAZY_LOAD);
+        String spillThreshold = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPILL_THRESHOLD);
+        String parseParallelism = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.PARSE_PARALLELISM);
 
         if (StringUtils.isEmpty(folder)) {
             folder = EmailConstants.DEFAULT_FOLDER;
         }
 
+        if (StringUtils.isEmpty(fetchProfile)) {
+            fetchProfile = EmailConstants.DEFAULT_FETCH_PROFILE;
+        }
+
         boolean seenFlag = true;
         if (seen != null) {
             seenFlag = Boolean.parseBoolean(seen);
@@ -94,6 +119,18 @@ public final class ConfigurationUtils {
             deletedFlag = Boolean.parseBoolean(deleted);
         }
 
+        boolean lazyLoadEnabled = Boolean.parseBoolean(lazyLoad);
+
+        int spillThresholdValue = EmailConstants.DEFAULT_SPILL_THRESHOLD;
+        if (spillThreshold != null) {
+            spillThresholdValue = Integer.parseInt(spillThreshold);
+        }
+
+        int parseParallelismValue = EmailConstants.DEFAULT_PARSE_PARALLELISM;
+        if (parseParallelism != null) {
+            parseParallelismValue = Integer.parseInt(parseParallelism);
+        }
+
         int offSetValue = EmailConstants.DEFAULT_OFFSET;
         if (offset != null) {
             offSetValue = Integer.parseInt(offset);
@@ -119,10 +156,184 @@ public final class ConfigurationUtils {
         mailboxConfiguration.setFromRegex(fromRegex);
         mailboxConfiguration.setOffset(offSetValue);
         mailboxConfiguration.setLimit(limitValue);
+        mailboxConfiguration.setServerSidePagination(Boolean.parseBoolean(serverSidePagination));
+        mailboxConfiguration.setContinuationToken(continuationToken);
+        mailboxConfiguration.setFetchProfile(getFetchProfile(fetchProfile));
+        mailboxConfiguration.setLazyLoad(lazyLoadEnabled);
+        mailboxConfiguration.setSpillThreshold(spillThresholdValue);
+        mailboxConfiguration.setParseParallelism(parseParallelismValue);
 
         return mailboxConfiguration;
     }
 
+    /**
+     * Builds the fetch profile used to prefetch the listed messages in a single request.
+     * <p>
+     * The profile is a comma separated list of the items ENVELOPE, CONTENT_INFO, FLAGS, SIZE, UID, HEADERS and
+     * MESSAGE. Any other entry is considered as the name of a header to be fetched. NONE disables prefetching.
+     *
+     * @param fetchProfile comma separated list of items to be prefetched
+     * @return fetch profile or null if prefetching is disabled
+     */
+    private static FetchProfile getFetchProfile(String fetchProfile) {
+
+        if (EmailConstants.FETCH_PROFILE_NONE.equalsIgnoreCase(fetchProfile.trim())) {
+            return null;
+        }
+        FetchProfile profile = new FetchProfile();
+        for (String item : fetchProfile.split(",")) {
+            item = item.trim();
+            switch (item.toUpperCase(Locale.ROOT)) {
+                case "":
+                    break;
+                case "ENVELOPE":
+                    profile.add(FetchProfile.Item.ENVELOPE);
+                    break;
+                case "CONTENT_INFO":
+                    profile.add(FetchProfile.Item.CONTENT_INFO);
+                    break;
+                case "FLAGS":
+                    profile.add(FetchProfile.Item.FLAGS);
+                    break;
+                case "SIZE":
+                    profile.add(FetchProfile.Item.SIZE);
+                    break;
+                case "UID":
+                    profile.add(UIDFolder.FetchProfileItem.UID);
+                    break;
+                case "HEADERS":
+                    profile.add(IMAPFolder.FetchProfileItem.HEADERS);
+                    break;
+                case "MESSAGE":
+                    profile.add(IMAPFolder.FetchProfileItem.MESSAGE);
+                    break;
+                default:
+                    profile.add(item);
+                    break;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Splits a comma separated list of email IDs
+     *
+     * @param emailIDs Comma separated email IDs
+     * @return Email IDs, empty if none are set
+     */
+    public static List<String> getEmailIDs(String emailIDs) {
+
+        List<String> ids = new ArrayList<>();
+        if (StringUtils.isEmpty(emailIDs)) {
+            return ids;
+        }
+        for (String emailID : emailIDs.split(",")) {
+            if (StringUtils.isNotBlank(emailID)) {
+                ids.add(emailID.trim());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Parses a comma separated list of UIDs
+     *
+     * @param uids Comma separated UIDs
+     * @return UIDs, empty if none are set
+     * @throws InvalidConfigurationException if any of the UIDs is not a positive number
+     */
+    public static long[] getUIDs(String uids) throws InvalidConfigurationException {
+
+        if (StringUtils.isBlank(uids)) {
+            return new long[0];
+        }
+        List<Long> values = new ArrayList<>();
+        for (String uid : uids.split(",")) {
+            if (StringUtils.isNotBlank(uid)) {
+                values.add(getUID(uid));
+            }
+        }
+        long[] result = new long[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the UID of an email
+     *
+     * @param uid UID of the email
+     * @return UID
+     * @throws InvalidConfigurationException if the UID is not a positive number
+     */
+    public static long getUID(String uid) throws InvalidConfigurationException {
+
+        long value = parseUIDValue(uid, "UID");
+        if (value <= 0) {
+            throw new InvalidConfigurationException(format("Invalid UID: %s.", uid.trim()));
+        }
+        return value;
+    }
+
+    /**
+     * Parses the maximum size in bytes of streamed attachment content held in memory
+     *
+     * @param streamBufferSize Buffer size
+     * @return Buffer size, or the default buffer size if not set
+     * @throws InvalidConfigurationException if the buffer size is not a positive number
+     */
+    public static int getStreamBufferSize(String streamBufferSize) throws InvalidConfigurationException {
+
+        if (StringUtils.isBlank(streamBufferSize)) {
+            return EmailConstants.DEFAULT_STREAM_BUFFER_SIZE;
+        }
+        int value;
+        try {
+            value = Integer.parseInt(streamBufferSize.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException(format("Invalid stream buffer size: %s.",
+                    streamBufferSize.trim()), e);
+        }
+        if (value <= 0) {
+            throw new InvalidConfigurationException(format("Invalid stream buffer size: %d. The buffer size must " +
+                    "be greater than 0.", value));
+        }
+        return value;
+    }
+
+    /**
+     * Parses the UIDVALIDITY of the folder the UIDs were retrieved from
+     *
+     * @param uidValidity UIDVALIDITY of the folder
+     * @return UIDVALIDITY, or 0 if not set
+     * @throws InvalidConfigurationException if the UIDVALIDITY is not a number
+     */
+    public static long getUIDValidity(String uidValidity) throws InvalidConfigurationException {
+
+        if (StringUtils.isBlank(uidValidity)) {
+            return 0;
+        }
+        return parseUIDValue(uidValidity, "UIDVALIDITY");
+    }
+
+    /**
+     * Parses a UID or a UIDVALIDITY value
+     *
+     * @param value Value to be parsed
+     * @param name  Name of the value, used in the error message
+     * @return Parsed value
+     * @throws InvalidConfigurationException if the value is not a number
+     */
+    private static long parseUIDValue(String value, String name) throws InvalidConfigurationException {
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException(format("Invalid %s: %s.", name, value.trim()), e);
+        }
+    }
+
     /**
      * Retrieves connection name from message context if configured as configKey attribute
      * or from the template parameter
@@ -189,6 +400,38 @@ public final class ConfigurationUtils {
                 EmailConstants.INITIALISATION_POLICY);
         String disablePooling = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
                 EmailConstants.DISABLE_POOLING);
+        String maxOpenFolders = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.MAX_OPEN_FOLDERS);
+        String keepFoldersOpen = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.KEEP_FOLDERS_OPEN);
+        String fetchSize = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.FETCH_SIZE);
+        String asyncQueueCapacity = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.ASYNC_QUEUE_CAPACITY);
+        String asyncSenderThreads = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.ASYNC_SENDER_THREADS);
+        String asyncBackPressure = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.ASYNC_BACK_PRESSURE);
+        String spoolDirectory = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPOOL_DIRECTORY);
+        String spoolSegmentSize = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPOOL_SEGMENT_SIZE);
+        String spoolRetryInterval = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPOOL_RETRY_INTERVAL);
+        String spoolMaxRetryInterval = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPOOL_MAX_RETRY_INTERVAL);
+        String spoolMaxRetries = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.SPOOL_MAX_RETRIES);
+        String domainConcurrency = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.DOMAIN_CONCURRENCY);
+        String domainRateLimit = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.DOMAIN_RATE_LIMIT);
+        String deferredExpunge = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.DEFERRED_EXPUNGE);
+        String expungeBatchSize = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.EXPUNGE_BATCH_SIZE);
+        String expungeInterval = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                EmailConstants.EXPUNGE_INTERVAL);
 
         ConnectionConfiguration connectionConfiguration = new ConnectionConfiguration();
         connectionConfiguration.setHost(host);
@@ -228,6 +471,44 @@ public final class ConfigurationUtils {
             connectionConfiguration.setInitialisationPolicy(initialisationPolicy);
         }
         connectionConfiguration.setDisablePooling(Boolean.parseBoolean(disablePooling));
+        if (maxOpenFolders != null) {
+            connectionConfiguration.setMaxOpenFolders(Integer.parseInt(maxOpenFolders));
+        }
+        connectionConfiguration.setKeepFoldersOpen(Boolean.parseBoolean(keepFoldersOpen));
+        connectionConfiguration.setFetchSize(fetchSize);
+        if (asyncQueueCapacity != null) {
+            connectionConfiguration.setAsyncQueueCapacity(Integer.parseInt(asyncQueueCapacity));
+        }
+        if (asyncSenderThreads != null) {
+            connectionConfiguration.setAsyncSenderThreads(Integer.parseInt(asyncSenderThreads));
+        }
+        connectionConfiguration.setAsyncBackPressure(asyncBackPressure);
+        connectionConfiguration.setSpoolDirectory(spoolDirectory);
+        if (spoolSegmentSize != null) {
+            connectionConfiguration.setSpoolSegmentSize(Long.parseLong(spoolSegmentSize));
+        }
+        if (spoolRetryInterval != null) {
+            connectionConfiguration.setSpoolRetryInterval(Long.parseLong(spoolRetryInterval));
+        }
+        if (spoolMaxRetryInterval != null) {
+            connectionConfiguration.setSpoolMaxRetryInterval(Long.parseLong(spoolMaxRetryInterval));
+        }
+        if (spoolMaxRetries != null) {
+            connectionConfiguration.setSpoolMaxRetries(Integer.parseInt(spoolMaxRetries));
+        }
+        if (domainConcurrency != null) {
+            connectionConfiguration.setDomainConcurrency(Integer.parseInt(domainConcurrency));
+        }
+        if (domainRateLimit != null) {
+            connectionConfiguration.setDomainRateLimit(Double.parseDouble(domainRateLimit));
+        }
+        connectionConfiguration.setDeferredExpunge(Boolean.parseBoolean(deferredExpunge));
+        if (expungeBatchSize != null) {
+            connectionConfiguration.setExpungeBatchSize(Integer.parseInt(expungeBatchSize));
+        }
+        if (expungeInterval != null) {
+            connectionConfiguration.setExpungeInterval(Long.parseLong(expungeInterval));
+        }
 
         return connectionConfiguration;
     }
@@ -19,9 +19,12 @@ package org.wso2.carbon.connector.utils;
 
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMException;
 import org.apache.axiom.om.OMFactory;
 import org.apache.axiom.om.OMNamespace;
 import org.apache.axiom.om.OMText;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.ds.WrappedTextNodeOMDataSourceFromReader;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axiom.soap.SOAPFactory;
 import org.apache.axis2.AxisFault;
@@ -37,6 +40,8 @@ import org.wso2.carbon.connector.exception.ContentBuilderException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import javax.activation.DataHandler;
 import javax.xml.namespace.QName;
@@ -67,17 +72,45 @@ public final class ContentBuilder {
     public static void buildContent(MessageContext messageContext, InputStream inputStream, String contentType)
             throws ContentBuilderException {
 
+        buildContent(messageContext, inputStream, contentType, false);
+    }
+
+    /**
+     * Build content according to the content type and set in the message body. In streaming mode, the content is
+     * not read into memory but read from the stream as the payload is consumed.
+     *
+     * @param messageContext Current message content
+     * @param inputStream    Content to be built as an input stream
+     * @param contentType    Content Type of the content
+     * @param streaming      whether to build the payload on top of the stream without reading it
+     * @throws ContentBuilderException if failed to build the content
+     */
+    public static void buildContent(MessageContext messageContext, InputStream inputStream, String contentType,
+                                    boolean streaming) throws ContentBuilderException {
+
         org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) messageContext)
                 .getAxis2MessageContext();
         try {
             if (ContentTypes.TEXT_XML.equalsIgnoreCase(contentType)
                     || ContentTypes.APPLICATION_XML.equalsIgnoreCase(contentType)) {
-                setXMLContent(inputStream, axis2MessageContext);
+                if (streaming) {
+                    setStreamingXMLContent(inputStream, axis2MessageContext);
+                } else {
+                    setXMLContent(inputStream, axis2MessageContext);
+                }
             } else if (ContentTypes.APPLICATION_JSON.equalsIgnoreCase(contentType)) {
-                setJSONPayload(inputStream, axis2MessageContext);
+                if (streaming) {
+                    JsonUtil.getNewJsonPayload(axis2MessageContext, inputStream, true, false);
+                } else {
+                    setJSONPayload(inputStream, axis2MessageContext);
+                }
             } else if (ContentTypes.TEXT_PLAIN.equalsIgnoreCase(contentType)
                     || ContentTypes.TEXT_CSV.equalsIgnoreCase(contentType)) {
-                setTextContent(inputStream, axis2MessageContext);
+                if (streaming) {
+                    setStreamingTextContent(inputStream, axis2MessageContext);
+                } else {
+                    setTextContent(inputStream, axis2MessageContext);
+                }
             } else {
                 setBinaryContent(inputStream, axis2MessageContext);
             }
@@ -129,6 +162,24 @@ public final class ContentBuilder {
         }
     }
 
+    /**
+     * Sets text content that is read from the stream when the payload is serialized
+     *
+     * @param inputStream         Content as an input stream
+     * @param axis2MessageContext Axis2 Message Context
+     */
+    private static void setStreamingTextContent(InputStream inputStream,
+                                                org.apache.axis2.context.MessageContext axis2MessageContext)
+            throws AxisFault {
+
+        OMFactory factory = OMAbstractFactory.getOMFactory();
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        OMElement textElement = factory.createOMElement(new WrappedTextNodeOMDataSourceFromReader(TEXT_ELEMENT,
+                reader), TEXT_ELEMENT.getLocalPart(), factory.createOMNamespace(TEXT_ELEMENT.getNamespaceURI(),
+                TEXT_ELEMENT.getPrefix()));
+        axis2MessageContext.setEnvelope(TransportUtils.createSOAPEnvelope(textElement));
+    }
+
     /**
      * Builds and sets JSON content
      *
@@ -168,6 +219,25 @@ public final class ContentBuilder {
         }
     }
 
+    /**
+     * Sets XML content that is built from the stream as the payload is accessed
+     *
+     * @param inputStream         Content as an input stream
+     * @param axis2MessageContext Axis2 Message Context
+     * @throws ContentBuilderException if failed to set XML content
+     */
+    private static void setStreamingXMLContent(InputStream inputStream,
+                                               org.apache.axis2.context.MessageContext axis2MessageContext)
+            throws ContentBuilderException {
+
+        try {
+            OMElement omXML = OMXMLBuilderFactory.createOMBuilder(inputStream).getDocumentElement();
+            axis2MessageContext.setEnvelope(TransportUtils.createSOAPEnvelope(omXML.getFirstElement()));
+        } catch (OMException | AxisFault e) {
+            throw new ContentBuilderException(format("Failed to set XML content. %s ", e.getMessage()), e);
+        }
+    }
+
     /**
      * Get text element
      *
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tika.Tika;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.lang.String.format;
+
+/**
+ * Detects the content type of attachments.
+ * <p>
+ * A single detector is shared, since loading the detectors and the magic database of Tika is expensive. The detected
+ * content types of files are cached by path, size and last modified time, hence a file that is sent repeatedly is
+ * only inspected once unless it changes.
+ */
+public final class ContentTypeDetector {
+
+    private static final Log log = LogFactory.getLog(ContentTypeDetector.class);
+
+    private static final int MAX_CACHED_FILES = 1024;
+    // Enough for the magic bytes of the types known to Tika
+    private static final int DETECTION_LENGTH = 64 * 1024;
+
+    // Tika facades are thread-safe
+    private static final Tika TIKA = new Tika();
+    private static final BoundedCache<FileKey, String> FILE_CONTENT_TYPES = new BoundedCache<>(MAX_CACHED_FILES);
+
+    private ContentTypeDetector() {
+
+    }
+
+    /**
+     * Detects the content type of a file. Only the leading bytes of the file are read, and only if the content type
+     * of the file is not cached already.
+     *
+     * @param file file to detect the content type of
+     * @return detected content type
+     * @throws IOException if failed to read the file
+     */
+    public static String detect(File file) throws IOException {
+
+        FileKey key = new FileKey(file.getAbsolutePath(), file.length(), file.lastModified());
+        String contentType = FILE_CONTENT_TYPES.get(key);
+        if (contentType == null) {
+            byte[] head = new byte[DETECTION_LENGTH];
+            int length;
+            try (InputStream inputStream = new FileInputStream(file)) {
+                length = IOUtils.read(inputStream, head);
+            }
+            contentType = TIKA.detect(Arrays.copyOf(head, length), file.getName());
+            FILE_CONTENT_TYPES.put(key, contentType);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Detected content type: %s of file: %s. Cache hits: %d, misses: %d.", contentType,
+                        file.getName(), FILE_CONTENT_TYPES.getHitCount(), FILE_CONTENT_TYPES.getMissCount()));
+            }
+        }
+        return contentType;
+    }
+
+    /**
+     * Detects the content type of content held in memory
+     *
+     * @param content content, or its leading bytes
+     * @param name    name of the content, used as a hint
+     * @return detected content type
+     */
+    public static String detect(byte[] content, String name) {
+
+        return TIKA.detect(content, name);
+    }
+
+    /**
+     * Identifies a version of a file
+     */
+    private static final class FileKey {
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+
+        FileKey(String path, long size, long lastModified) {
+
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileKey fileKey = (FileKey) o;
+            return size == fileKey.size && lastModified == fileKey.lastModified && Objects.equals(path, fileKey.path);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return Objects.hash(path, size, lastModified);
+        }
+    }
+}
@@ -28,6 +28,7 @@ public final class ContentTypes {
     public static final String TEXT_XML = "text/xml";
     public static final String TEXT_CSV = "text/csv";
     public static final String TEXT_PLAIN = "text/plain";
+    public static final String TEXT_HTML = "text/html";
     private ContentTypes() {
 
     }
@@ -17,11 +17,7 @@
  */
 package org.wso2.carbon.connector.utils;
 
-import org.apache.commons.io.IOUtils;
-
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import javax.activation.DataSource;
@@ -32,20 +28,18 @@ import javax.activation.DataSource;
 public class EmailAttachmentDataSource implements DataSource {
 
     private final String name;
-    private final InputStream content;
+    private final byte[] content;
     private final String contentType;
 
-    EmailAttachmentDataSource(String name, InputStream content, String contentType) throws IOException {
+    EmailAttachmentDataSource(String name, byte[] content, String contentType) {
         this.name = name;
-        ByteArrayOutputStream bs = new ByteArrayOutputStream();
-        IOUtils.copy(content, bs);
-        this.content = new ByteArrayInputStream(bs.toByteArray());
+        this.content = content;
         this.contentType = contentType;
     }
 
     @Override
     public InputStream getInputStream() {
-        return content;
+        return new ByteArrayInputStream(content);
     }
 
     @Override
@@ -42,6 +42,8 @@ public final class EmailConfigProperties {
     public static final String PROPERTY_CONNECTION_TIMEOUT = "mail.%s.connectiontimeout";
     public static final String PROPERTY_WRITE_TIMEOUT = "mail.%s.writetimeout";
     public static final String PROPERTY_CHECK_SERVER_IDENTITY = "mail.%s.ssl.checkserveridentity";
+    public static final String PROPERTY_FETCH_SIZE = "mail.%s.fetchsize";
+    public static final String PROPERTY_PARTIAL_FETCH = "mail.%s.partialfetch";
 
     private EmailConfigProperties() {
 
@@ -33,6 +33,8 @@ public final class EmailConstants {
     public static final String ENCODING = "encoding";
     public static final String ATTACHMENTS = "attachments";
     public static final String CONTENT_TRANSFER_ENCODING = "contentTransferEncoding";
+    public static final String MESSAGES = "messages";
+    public static final String TEMPLATE_NAME = "templateName";
     public static final String PROTOCOL = "protocol";
     public static final String HOST = "host";
     public static final String PORT = "port";
@@ -40,8 +42,16 @@ public final class EmailConstants {
     public static final String PASSWORD = "password";
     public static final String FOLDER = "folder";
     public static final String EMAIL_ID = "emailID";
+    public static final String EMAIL_IDS = "emailIDs";
+    public static final String UIDS = "uids";
+    public static final String UID = "uid";
+    public static final String UID_VALIDITY = "uidValidity";
+    public static final String DESTINATION_FOLDER = "destinationFolder";
+    public static final String ALLOW_EXPUNGE = "allowExpunge";
     public static final String EMAIL_INDEX = "emailIndex";
     public static final String ATTACHMENT_INDEX = "attachmentIndex";
+    public static final String STREAMING = "streaming";
+    public static final String STREAM_BUFFER_SIZE = "streamBufferSize";
     public static final String CONNECTION = "connection";
     public static final String DELETE_AFTER_RETRIEVE = "deleteAfterRetrieve";
     public static final String RECEIVED_SINCE = "receivedSince";
@@ -52,6 +62,12 @@ public final class EmailConstants {
     public static final String FROM_REGEX = "fromRegex";
     public static final String OFFSET = "offset";
     public static final String LIMIT = "limit";
+    public static final String SERVER_SIDE_PAGINATION = "serverSidePagination";
+    public static final String CONTINUATION_TOKEN = "continuationToken";
+    public static final String FETCH_PROFILE = "fetchProfile";
+    public static final String LAZY_LOAD = "lazyLoad";
+    public static final String SPILL_THRESHOLD = "spillThreshold";
+    public static final String PARSE_PARALLELISM = "parseParallelism";
     public static final String READ_TIMEOUT = "readTimeout";
     public static final String WRITE_TIMEOUT = "writeTimeout";
     public static final String CONNECTION_TIMEOUT = "connectionTimeout";
@@ -68,6 +84,25 @@ public final class EmailConstants {
     public static final String EXHAUSTED_ACTION = "exhaustedAction";
     public static final String INITIALISATION_POLICY = "initialisationPolicy";
     public static final String DISABLE_POOLING = "disablePooling";
+    public static final String MAX_OPEN_FOLDERS = "maxOpenFolders";
+    public static final String KEEP_FOLDERS_OPEN = "keepFoldersOpen";
+    public static final String FETCH_SIZE = "fetchSize";
+    public static final String ASYNC_QUEUE_CAPACITY = "asyncQueueCapacity";
+    public static final String ASYNC_SENDER_THREADS = "asyncSenderThreads";
+    public static final String ASYNC_BACK_PRESSURE = "asyncBackPressure";
+    public static final String SPOOL_DIRECTORY = "spoolDirectory";
+    public static final String SPOOL_SEGMENT_SIZE = "spoolSegmentSize";
+    public static final String SPOOL_RETRY_INTERVAL = "spoolRetryInterval";
+    public static final String SPOOL_MAX_RETRY_INTERVAL = "spoolMaxRetryInterval";
+    public static final String SPOOL_MAX_RETRIES = "spoolMaxRetries";
+    public static final String DOMAIN_CONCURRENCY = "domainConcurrency";
+    public static final String DOMAIN_RATE_LIMIT = "domainRateLimit";
+    public static final String DEFERRED_EXPUNGE = "deferredExpunge";
+    public static final String EXPUNGE_BATCH_SIZE = "expungeBatchSize";
+    public static final String EXPUNGE_INTERVAL = "expungeInterval";
+    public static final String DELIVERY_MODE = "deliveryMode";
+    public static final String FAN_OUT = "fanOut";
+    public static final String TRACKING_ID = "trackingId";
     //Java Mail API Constants
     public static final String CONTENT_TRANSFER_ENCODING_HEADER = "Content-Transfer-Encoding";
     // Default configuration values
@@ -81,6 +116,31 @@ public final class EmailConstants {
     public static final int DEFAULT_LIMIT = 10;
     public static final int DEFAULT_MAX_ACTIVE_CONNECTIONS = 4;
     public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 2;
+    public static final int DEFAULT_MAX_OPEN_FOLDERS = 4;
+    public static final String DEFAULT_FETCH_PROFILE = "ENVELOPE,FLAGS,UID,CONTENT_INFO";
+    public static final String FETCH_PROFILE_NONE = "NONE";
+    public static final int DEFAULT_SPILL_THRESHOLD = -1;
+    public static final int DEFAULT_STREAM_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_PARSE_PARALLELISM = 1;
+    public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+    public static final int DEFAULT_ASYNC_SENDER_THREADS = 2;
+    public static final long DEFAULT_SPOOL_SEGMENT_SIZE = 16L * 1024 * 1024;
+    public static final long DEFAULT_SPOOL_RETRY_INTERVAL = 1000L;
+    public static final long DEFAULT_SPOOL_MAX_RETRY_INTERVAL = 5L * 60 * 1000;
+    public static final int DEFAULT_SPOOL_MAX_RETRIES = 10;
+    public static final int DEFAULT_DOMAIN_CONCURRENCY = 2;
+    public static final int DEFAULT_EXPUNGE_BATCH_SIZE = 100;
+    public static final long DEFAULT_EXPUNGE_INTERVAL = 5000L;
+    // Initialisation policies
+    public static final String INITIALISATION_POLICY_EAGER = "EAGER";
+    // Delivery modes
+    public static final String DELIVERY_MODE_SYNC = "SYNC";
+    public static final String DELIVERY_MODE_ASYNC = "ASYNC";
+    public static final String DELIVERY_MODE_SPOOL = "SPOOL";
+    // Back-pressure policies of asynchronous delivery
+    public static final String BACK_PRESSURE_BLOCK = "BLOCK";
+    public static final String BACK_PRESSURE_REJECT = "REJECT";
+    public static final String BACK_PRESSURE_SPILL = "SPILL";
     // Flags
     public static final String FLAG_SEEN = "seen";
     public static final String FLAG_ANSWERED = "answered";
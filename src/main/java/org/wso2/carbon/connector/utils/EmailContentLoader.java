@@ -0,0 +1,249 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.connector.connection.EmailConnectionManager;
+import org.wso2.carbon.connector.connection.EmailConnectionPool;
+import org.wso2.carbon.connector.connection.MailBoxConnection;
+import org.wso2.carbon.connector.exception.EmailConnectionException;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.exception.EmailNotFoundException;
+import org.wso2.carbon.connector.exception.EmailParsingException;
+import org.wso2.carbon.connector.pojo.Attachment;
+import org.wso2.carbon.connector.pojo.EmailMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
+
+import static java.lang.String.format;
+
+/**
+ * Retrieves the content of lazily parsed emails from the server on demand
+ */
+public final class EmailContentLoader {
+
+    private static final Log log = LogFactory.getLog(EmailContentLoader.class);
+
+    private EmailContentLoader() {
+
+    }
+
+    /**
+     * Retrieves the text and HTML content of an email, if not retrieved already
+     *
+     * @param emailMessage Email to retrieve the content of
+     * @throws EmailConnectionException     if failed to retrieve the content from the server
+     * @throws EmailConnectionPoolException if failed to borrow a connection
+     * @throws EmailNotFoundException       if the email no longer exists in the folder
+     * @throws EmailParsingException        if failed to parse the content
+     */
+    public static void loadBody(EmailMessage emailMessage) throws EmailConnectionException,
+            EmailConnectionPoolException, EmailNotFoundException, EmailParsingException {
+
+        if (emailMessage.isContentLoaded()) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Retrieving body of email with UID: %d...", emailMessage.getUid()));
+        }
+        readMessage(emailMessage, message -> {
+            if (emailMessage.getTextPartPath() != null) {
+                emailMessage.setTextContent((String) EmailParser.getPart(message, emailMessage.getTextPartPath())
+                        .getContent());
+            }
+            if (emailMessage.getHtmlPartPath() != null) {
+                emailMessage.setHtmlContent((String) EmailParser.getPart(message, emailMessage.getHtmlPartPath())
+                        .getContent());
+            }
+            return null;
+        });
+        emailMessage.setContentLoaded(true);
+    }
+
+    /**
+     * Retrieves the content of an attachment, if not retrieved already
+     *
+     * @param emailMessage Email containing the attachment
+     * @param attachment   Attachment to retrieve the content of
+     * @throws EmailConnectionException     if failed to retrieve the content from the server
+     * @throws EmailConnectionPoolException if failed to borrow a connection
+     * @throws EmailNotFoundException       if the email no longer exists in the folder
+     * @throws EmailParsingException        if failed to parse the content
+     */
+    public static void loadAttachment(EmailMessage emailMessage, Attachment attachment)
+            throws EmailConnectionException, EmailConnectionPoolException, EmailNotFoundException,
+            EmailParsingException {
+
+        if (attachment.getContent() != null || attachment.getPartPath() == null) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Retrieving attachment: %s of email with UID: %d...", attachment.getName(),
+                    emailMessage.getUid()));
+        }
+        readMessage(emailMessage, message -> {
+            try (InputStream inputStream = EmailParser.getPart(message, attachment.getPartPath()).getInputStream()) {
+                AttachmentStore.store(attachment, inputStream, emailMessage.getSpillThreshold());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Opens a stream to the content of an attachment. The content is copied from the server before the connection is
+     * returned to the pool, so that the connection is never held by the stream. Content up to the buffer size is held
+     * in memory and larger content is written to a temporary file, which is deleted once the stream is fully read or
+     * closed.
+     *
+     * @param emailMessage Email containing the attachment
+     * @param attachment   Attachment to open the content of
+     * @param bufferSize   Maximum size in bytes of content held in memory
+     * @return Stream of the attachment content
+     * @throws EmailConnectionException     if failed to retrieve the content from the server
+     * @throws EmailConnectionPoolException if failed to borrow a connection
+     * @throws EmailNotFoundException       if the email no longer exists in the folder
+     * @throws EmailParsingException        if failed to parse the content
+     */
+    public static InputStream openAttachmentStream(EmailMessage emailMessage, Attachment attachment, int bufferSize)
+            throws EmailConnectionException, EmailConnectionPoolException, EmailNotFoundException,
+            EmailParsingException {
+
+        if (log.isDebugEnabled()) {
+            log.debug(format("Streaming attachment: %s of email with UID: %d...", attachment.getName(),
+                    emailMessage.getUid()));
+        }
+        return readMessage(emailMessage, message -> {
+            try (InputStream content = EmailParser.getPart(message, attachment.getPartPath()).getInputStream()) {
+                return copyContent(content, bufferSize);
+            }
+        });
+    }
+
+    /**
+     * Copies content into memory, or into a temporary file if it exceeds the buffer size
+     *
+     * @param content    Content to be copied
+     * @param bufferSize Maximum size in bytes of content held in memory
+     * @return Stream of the copied content
+     * @throws IOException if failed to read or spill the content
+     */
+    private static InputStream copyContent(InputStream content, int bufferSize) throws IOException {
+
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        long count = IOUtils.copyLarge(content, head, 0, bufferSize + 1L);
+        if (count <= bufferSize) {
+            return new ByteArrayInputStream(head.toByteArray());
+        }
+        SpilledContent spilledContent = SpilledContent.create(head.toByteArray(), content);
+        try {
+            return spilledContent.openStream();
+        } finally {
+            // The file is deleted once the stream is fully read or closed
+            spilledContent.release();
+        }
+    }
+
+    /**
+     * Borrows a connection of the connection the email was listed from and reads the email
+     *
+     * @param emailMessage Email to be read
+     * @param reader       Reads the required content from the message
+     * @return Content read
+     */
+    private static <T> T readMessage(EmailMessage emailMessage, MessageReader<T> reader)
+            throws EmailConnectionException, EmailConnectionPoolException, EmailNotFoundException,
+            EmailParsingException {
+
+        EmailConnectionPool pool = EmailConnectionManager.getEmailConnectionManager()
+                .getConnectionPool(emailMessage.getConnectionName());
+        MailBoxConnection connection = null;
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(javax.mail.Message.class.getClassLoader());
+            connection = (MailBoxConnection) pool.borrowObject();
+            return reader.read(getMessage(connection, emailMessage));
+        } catch (MessagingException | IOException e) {
+            throw new EmailConnectionException(format("Error occurred while retrieving email content. %s",
+                    e.getMessage()), e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            if (connection != null) {
+                releaseFolder(connection);
+            }
+            pool.returnObject(connection);
+        }
+    }
+
+    /**
+     * Releases the folder of a connection before the connection is returned to the pool, whether or not the email
+     * was read
+     *
+     * @param connection Connection to the mailbox
+     */
+    private static void releaseFolder(MailBoxConnection connection) {
+
+        try {
+            connection.releaseFolder(false);
+        } catch (EmailConnectionException e) {
+            log.error(format("Error occurred while releasing folder. %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Looks up an email in its folder by UID
+     *
+     * @param connection   Connection to the mailbox
+     * @param emailMessage Email to be looked up
+     * @return Message of the email
+     * @throws EmailNotFoundException if the email no longer exists in the folder
+     */
+    private static Message getMessage(MailBoxConnection connection, EmailMessage emailMessage)
+            throws EmailConnectionException, EmailNotFoundException, MessagingException {
+
+        UIDFolder folder = (UIDFolder) connection.getFolder(emailMessage.getFolder(), Folder.READ_ONLY);
+        if (folder.getUIDValidity() != emailMessage.getUidValidity()) {
+            throw new EmailNotFoundException(format("Email with UID: %d no longer exists in folder: %s. " +
+                    "UIDVALIDITY of the folder has changed.", emailMessage.getUid(), emailMessage.getFolder()));
+        }
+        Message message = folder.getMessageByUID(emailMessage.getUid());
+        if (message == null) {
+            throw new EmailNotFoundException(format("Email with UID: %d no longer exists in folder: %s.",
+                    emailMessage.getUid(), emailMessage.getFolder()));
+        }
+        return message;
+    }
+
+    /**
+     * Reads content from a message
+     *
+     * @param <T> type of the content
+     */
+    private interface MessageReader<T> {
+
+        T read(Message message) throws MessagingException, IOException, EmailParsingException;
+    }
+}
@@ -17,22 +17,33 @@
  */
 package org.wso2.carbon.connector.utils;
 
+import com.sun.mail.imap.IMAPFolder;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.connector.connection.ExpungeCoalescer;
 import org.wso2.carbon.connector.connection.MailBoxConnection;
+import org.wso2.carbon.connector.connection.MessageIDIndex;
 import org.wso2.carbon.connector.exception.EmailConnectionException;
 import org.wso2.carbon.connector.exception.EmailNotFoundException;
 import org.wso2.carbon.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.connector.pojo.Attachment;
 import org.wso2.carbon.connector.pojo.EmailMessage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import javax.mail.FetchProfile;
 import javax.mail.Flags;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
 import javax.mail.search.MessageIDTerm;
+import javax.mail.search.OrTerm;
 import javax.mail.search.SearchTerm;
 
 import static java.lang.String.format;
@@ -72,8 +83,12 @@ public final class EmailOperationUtils {
 
         try {
             Folder folder = connection.getFolder(folderName, Folder.READ_WRITE);
-            SearchTerm searchTerm = new MessageIDTerm(emailID);
-            Message[] messages = folder.search(searchTerm);
+            Message[] messages = getIndexedMessages(connection, folder, Collections.singletonList(emailID)).values()
+                    .toArray(new Message[0]);
+            if (messages.length == 0) {
+                SearchTerm searchTerm = new MessageIDTerm(emailID);
+                messages = folder.search(searchTerm);
+            }
 
             if (messages.length > 0) {
                 Message message = messages[0];
@@ -88,7 +103,7 @@ public final class EmailOperationUtils {
                 log.error(format("No emails found with ID: %s.", emailID));
                 throw new EmailNotFoundException(format("No emails found with ID: %s.", emailID));
             }
-            connection.closeFolder(expunge);
+            releaseFolder(connection, folder, Arrays.copyOf(messages, 1), expunge);
         } catch (MessagingException e) {
             throw new EmailConnectionException(format("Error occurred while changing email state. %s ",
                     e.getMessage()), e);
@@ -96,6 +111,380 @@ public final class EmailOperationUtils {
         return success;
     }
 
+    /**
+     * Changes the email state by setting flags, looking up the email directly by its UID instead of searching the
+     * Message-ID header of every email in the folder
+     *
+     * @param connection  Mailbox connection to be used to connect to server
+     * @param folderName  Mailbox name
+     * @param uid         UID of the message of which the state is to be changed
+     * @param uidValidity UIDVALIDITY of the folder the UID was retrieved from, or 0 to skip the check
+     * @param flag        Flag to be set
+     * @param expunge     whether to delete messages marked for deletion
+     * @return true if the status update was successful, false otherwise
+     * @throws EmailConnectionException      thrown if failed to set the flags on the message
+     * @throws EmailNotFoundException        thrown if the message was not found, or the UID is no longer valid
+     * @throws InvalidConfigurationException thrown if the folder does not support UIDs
+     */
+    public static boolean changeEmailState(MailBoxConnection connection, String folderName, long uid,
+                                           long uidValidity, Flags.Flag flag, boolean expunge)
+            throws EmailConnectionException, EmailNotFoundException, InvalidConfigurationException {
+
+        boolean success = false;
+        if (StringUtils.isEmpty(folderName)) {
+            folderName = EmailConstants.DEFAULT_FOLDER;
+        }
+
+        try {
+            Folder folder = connection.getFolder(folderName, Folder.READ_WRITE);
+            Message message = getUIDFolder(folder, uidValidity).getMessageByUID(uid);
+            if (message == null) {
+                log.error(format("No emails found with UID: %d.", uid));
+                throw new EmailNotFoundException(format("No emails found with UID: %d.", uid));
+            }
+            if (flag != null) {
+                message.setFlag(flag, true);
+                success = true;
+                if (log.isDebugEnabled()) {
+                    log.debug(format("%s flag updated for message with UID: %d...", getFlagName(flag), uid));
+                }
+            }
+            releaseFolder(connection, folder, new Message[]{message}, expunge);
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while changing email state. %s ",
+                    e.getMessage()), e);
+        }
+        return success;
+    }
+
+    /**
+     * Changes the state of many emails at once by setting flags.
+     * <p>
+     * All the emails identified by email ID are resolved with a single SEARCH and the ones identified by UID with a
+     * single UID FETCH. The flag is then set on all of them with a single STORE over the message set and the folder
+     * is expunged once at the end, if requested.
+     *
+     * @param connection  Mailbox connection to be used to connect to server
+     * @param folderName  Mailbox name
+     * @param emailIDs    Email IDs of the messages of which the state is to be changed
+     * @param uids        UIDs of the messages of which the state is to be changed
+     * @param uidValidity UIDVALIDITY of the folder the UIDs were retrieved from, or 0 to skip the check
+     * @param flag        Flag to be set
+     * @param expunge     whether to delete messages marked for deletion
+     * @return true if the status update was successful, false otherwise
+     * @throws EmailConnectionException      thrown if failed to set the flags on the messages
+     * @throws EmailNotFoundException        thrown if none of the messages were found, or the UIDs are no longer
+     *                                       valid
+     * @throws InvalidConfigurationException thrown if UIDs are set but the folder does not support UIDs
+     */
+    public static boolean changeEmailsState(MailBoxConnection connection, String folderName, List<String> emailIDs,
+                                            long[] uids, long uidValidity, Flags.Flag flag, boolean expunge)
+            throws EmailConnectionException, EmailNotFoundException, InvalidConfigurationException {
+
+        if (StringUtils.isEmpty(folderName)) {
+            folderName = EmailConstants.DEFAULT_FOLDER;
+        }
+        if (flag == null) {
+            return false;
+        }
+        if (emailIDs.isEmpty() && uids.length == 0) {
+            throw new InvalidConfigurationException("No email IDs or UIDs are set.");
+        }
+
+        try {
+            Folder folder = connection.getFolder(folderName, Folder.READ_WRITE);
+            List<Message> messages = new ArrayList<>();
+            if (!emailIDs.isEmpty()) {
+                Map<String, Message> indexedMessages = getIndexedMessages(connection, folder, emailIDs);
+                messages.addAll(indexedMessages.values());
+                // Only the emails not found through the index are searched for
+                List<String> remainingIDs = new ArrayList<>(emailIDs);
+                remainingIDs.removeAll(indexedMessages.keySet());
+                if (!remainingIDs.isEmpty()) {
+                    messages.addAll(Arrays.asList(folder.search(getMessageIDTerm(remainingIDs))));
+                }
+            }
+            if (uids.length > 0) {
+                UIDFolder uidFolder = getUIDFolder(folder, uidValidity);
+                for (Message message : uidFolder.getMessagesByUID(uids)) {
+                    if (message != null) {
+                        messages.add(message);
+                    }
+                }
+            }
+
+            int requested = emailIDs.size() + uids.length;
+            if (messages.isEmpty()) {
+                log.error(format("None of the %d emails were found in folder: %s.", requested, folderName));
+                throw new EmailNotFoundException(format("None of the %d emails were found in folder: %s.",
+                        requested, folderName));
+            }
+            if (messages.size() < requested) {
+                log.warn(format("Only %d of the %d emails were found in folder: %s.", messages.size(), requested,
+                        folderName));
+            }
+            folder.setFlags(messages.toArray(new Message[0]), new Flags(flag), true);
+            if (log.isDebugEnabled()) {
+                log.debug(format("%s flag updated for %d messages...", getFlagName(flag), messages.size()));
+            }
+            releaseFolder(connection, folder, messages.toArray(new Message[0]), expunge);
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while changing email state. %s ",
+                    e.getMessage()), e);
+        }
+        return true;
+    }
+
+    /**
+     * Moves emails to another folder by UID, in bulk
+     *
+     * @param connection        Mailbox connection to be used to connect to server
+     * @param folderName        Mailbox name of the folder containing the emails
+     * @param destinationFolder Mailbox name of the folder to move the emails to
+     * @param uids              UIDs of the emails to be moved
+     * @param uidValidity       UIDVALIDITY of the folder the UIDs were retrieved from, or 0 to skip the check
+     * @param allowExpunge      whether the whole folder may be expunged, right away or when the deferred expunge is
+     *                          done, if the server supports neither MOVE nor UIDPLUS
+     * @return true if the emails were moved
+     * @throws EmailConnectionException      thrown if failed to move the emails
+     * @throws EmailNotFoundException        thrown if the UIDs are no longer valid
+     * @throws InvalidConfigurationException thrown if the folder is not an IMAP folder, no UIDs or destination
+     *                                       are set, or the emails cannot be moved without expunging the folder
+     */
+    public static boolean moveEmails(MailBoxConnection connection, String folderName, String destinationFolder,
+                                     long[] uids, long uidValidity, boolean allowExpunge)
+            throws EmailConnectionException, EmailNotFoundException, InvalidConfigurationException {
+
+        return transferEmails(connection, folderName, destinationFolder, uids, uidValidity, true, allowExpunge);
+    }
+
+    /**
+     * Copies emails to another folder by UID, in bulk
+     *
+     * @param connection        Mailbox connection to be used to connect to server
+     * @param folderName        Mailbox name of the folder containing the emails
+     * @param destinationFolder Mailbox name of the folder to copy the emails to
+     * @param uids              UIDs of the emails to be copied
+     * @param uidValidity       UIDVALIDITY of the folder the UIDs were retrieved from, or 0 to skip the check
+     * @return true if the emails were copied
+     * @throws EmailConnectionException      thrown if failed to copy the emails
+     * @throws EmailNotFoundException        thrown if the UIDs are no longer valid
+     * @throws InvalidConfigurationException thrown if the folder is not an IMAP folder, or no UIDs or destination
+     *                                       are set
+     */
+    public static boolean copyEmails(MailBoxConnection connection, String folderName, String destinationFolder,
+                                     long[] uids, long uidValidity)
+            throws EmailConnectionException, EmailNotFoundException, InvalidConfigurationException {
+
+        return transferEmails(connection, folderName, destinationFolder, uids, uidValidity, false, false);
+    }
+
+    /**
+     * Moves or copies emails to another folder by UID, without looking up the emails first
+     *
+     * @param connection        Mailbox connection to be used to connect to server
+     * @param folderName        Mailbox name of the folder containing the emails
+     * @param destinationFolder Mailbox name of the destination folder
+     * @param uids              UIDs of the emails
+     * @param uidValidity       UIDVALIDITY of the folder the UIDs were retrieved from, or 0 to skip the check
+     * @param move              whether to move the emails instead of copying them
+     * @param allowExpunge      whether the whole folder may be expunged when moving the emails
+     * @return true if the emails were transferred
+     */
+    private static boolean transferEmails(MailBoxConnection connection, String folderName, String destinationFolder,
+                                          long[] uids, long uidValidity, boolean move, boolean allowExpunge)
+            throws EmailConnectionException, EmailNotFoundException, InvalidConfigurationException {
+
+        if (StringUtils.isEmpty(folderName)) {
+            folderName = EmailConstants.DEFAULT_FOLDER;
+        }
+        if (StringUtils.isEmpty(destinationFolder)) {
+            throw new InvalidConfigurationException("Destination folder is not set.");
+        }
+        if (uids.length == 0) {
+            throw new InvalidConfigurationException("No UIDs are set.");
+        }
+
+        try {
+            Folder folder = connection.getFolder(folderName, move ? Folder.READ_WRITE : Folder.READ_ONLY);
+            if (!(folder instanceof IMAPFolder)) {
+                throw new InvalidConfigurationException(format("Emails can only be moved or copied from IMAP " +
+                        "folders. Folder: %s is not an IMAP folder.", folderName));
+            }
+            getUIDFolder(folder, uidValidity);
+            if (move) {
+                moveEmails(connection, (IMAPFolder) folder, destinationFolder, uids, allowExpunge);
+            } else {
+                IMAPUtils.copyUIDs((IMAPFolder) folder, uids, destinationFolder);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(format("%s %d email(s) from folder: %s to folder: %s...", move ? "Moved" : "Copied",
+                        uids.length, folderName, destinationFolder));
+            }
+            connection.releaseFolder(false);
+        } catch (MessagingException e) {
+            throw new EmailConnectionException(format("Error occurred while %s emails to folder: %s. %s",
+                    move ? "moving" : "copying", destinationFolder, e.getMessage()), e);
+        }
+        return true;
+    }
+
+    /**
+     * Moves emails out of an open folder. If the server supports neither MOVE nor UIDPLUS, removing the emails
+     * requires expunging the whole folder, which also removes any other email marked as DELETED, hence is only done
+     * if allowed. The expunge is then scheduled if expunges are deferred for the connection, and done right away
+     * otherwise.
+     *
+     * @param connection        Mailbox connection the folder was opened with
+     * @param folder            Open folder containing the emails
+     * @param destinationFolder Mailbox name of the folder to move the emails to
+     * @param uids              UIDs of the emails
+     * @param allowExpunge      whether the whole folder may be expunged
+     * @throws InvalidConfigurationException if the emails cannot be moved without expunging the folder
+     * @throws MessagingException            if failed to move the emails
+     */
+    private static void moveEmails(MailBoxConnection connection, IMAPFolder folder, String destinationFolder,
+                                   long[] uids, boolean allowExpunge)
+            throws InvalidConfigurationException, MessagingException {
+
+        ExpungeCoalescer coalescer = connection.getExpungeCoalescer();
+        if (!allowExpunge && !IMAPUtils.canMoveUIDs(folder)) {
+            throw new InvalidConfigurationException(format("The server supports neither MOVE nor UIDPLUS, hence " +
+                    "moving emails from folder: %s requires expunging the whole folder, which removes all emails " +
+                    "marked as DELETED. Set %s to true to allow it.",
+                    folder.getFullName(), EmailConstants.ALLOW_EXPUNGE));
+        }
+        boolean removed = IMAPUtils.moveUIDs(folder, uids, destinationFolder, coalescer == null);
+        if (!removed) {
+            coalescer.schedule(folder.getFullName(), uids);
+        }
+    }
+
+    /**
+     * Releases the folder once the state of the emails has been changed. If expunges are deferred for the connection,
+     * the expunge of the emails is scheduled instead of expunging the folder right away.
+     *
+     * @param connection Mailbox connection the folder was opened with
+     * @param folder     Open folder
+     * @param messages   Emails of which the state was changed
+     * @param expunge    whether to delete messages marked for deletion
+     * @throws EmailConnectionException if failed to release the folder
+     * @throws MessagingException       if failed to retrieve the UIDs of the emails
+     */
+    private static void releaseFolder(MailBoxConnection connection, Folder folder, Message[] messages,
+                                      boolean expunge) throws EmailConnectionException, MessagingException {
+
+        ExpungeCoalescer coalescer = connection.getExpungeCoalescer();
+        if (!expunge || coalescer == null || !(folder instanceof UIDFolder)) {
+            connection.releaseFolder(expunge);
+            return;
+        }
+        // UIDs of the emails found by searching are fetched for all of them in a single request
+        FetchProfile fetchProfile = new FetchProfile();
+        fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+        folder.fetch(messages, fetchProfile);
+        long[] uids = new long[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            uids[i] = ((UIDFolder) folder).getUID(messages[i]);
+        }
+        coalescer.schedule(folder.getFullName(), uids);
+        connection.releaseFolder(false);
+    }
+
+    /**
+     * Looks up emails by the UIDs indexed for their Message-IDs while listing emails, without searching the folder.
+     * Indexed UIDs that no longer refer to an email are removed from the index.
+     *
+     * @param connection Mailbox connection holding the index
+     * @param folder     Open folder containing the emails
+     * @param emailIDs   Message-IDs of the emails
+     * @return Emails found through the index by Message-ID, which may not include all the requested emails
+     * @throws MessagingException if failed to look up the emails
+     */
+    private static Map<String, Message> getIndexedMessages(MailBoxConnection connection, Folder folder,
+                                                           List<String> emailIDs) throws MessagingException {
+
+        Map<String, Message> messages = new LinkedHashMap<>();
+        if (!(folder instanceof UIDFolder)) {
+            return messages;
+        }
+        MessageIDIndex index = connection.getMessageIDIndex();
+        UIDFolder uidFolder = (UIDFolder) folder;
+        long uidValidity = uidFolder.getUIDValidity();
+        List<String> indexedIDs = new ArrayList<>();
+        List<Long> indexedUIDs = new ArrayList<>();
+        for (String emailID : emailIDs) {
+            long uid = index.getUID(folder.getFullName(), uidValidity, emailID);
+            if (uid > 0) {
+                indexedIDs.add(emailID);
+                indexedUIDs.add(uid);
+            }
+        }
+        if (indexedUIDs.isEmpty()) {
+            return messages;
+        }
+        long[] uids = new long[indexedUIDs.size()];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = indexedUIDs.get(i);
+        }
+        Message[] indexedMessages = uidFolder.getMessagesByUID(uids);
+        for (int i = 0; i < indexedMessages.length; i++) {
+            if (indexedMessages[i] != null) {
+                messages.put(indexedIDs.get(i), indexedMessages[i]);
+            } else {
+                index.remove(folder.getFullName(), indexedIDs.get(i));
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(format("Found %d of %d email(s) through the Message-ID index of folder: %s.",
+                    messages.size(), emailIDs.size(), folder.getFullName()));
+        }
+        return messages;
+    }
+
+    /**
+     * Gets a folder as a UID folder, making sure the UIDs retrieved earlier are still valid
+     *
+     * @param folder      Open folder
+     * @param uidValidity UIDVALIDITY of the folder the UIDs were retrieved from, or 0 to skip the check
+     * @return UID folder
+     * @throws EmailNotFoundException        if the UIDVALIDITY of the folder has changed
+     * @throws InvalidConfigurationException if the folder does not support UIDs
+     * @throws MessagingException            if failed to retrieve the UIDVALIDITY
+     */
+    private static UIDFolder getUIDFolder(Folder folder, long uidValidity)
+            throws EmailNotFoundException, InvalidConfigurationException, MessagingException {
+
+        if (!(folder instanceof UIDFolder)) {
+            throw new InvalidConfigurationException(format("Folder: %s does not support UIDs.",
+                    folder.getFullName()));
+        }
+        UIDFolder uidFolder = (UIDFolder) folder;
+        if (uidValidity > 0 && uidFolder.getUIDValidity() != uidValidity) {
+            throw new EmailNotFoundException(format("UIDVALIDITY of folder: %s has changed. The UIDs are no longer " +
+                    "valid.", folder.getFullName()));
+        }
+        return uidFolder;
+    }
+
+    /**
+     * Builds a search term matching any of the given email IDs
+     *
+     * @param emailIDs Email IDs to be matched
+     * @return Search term
+     */
+    private static SearchTerm getMessageIDTerm(List<String> emailIDs) {
+
+        if (emailIDs.size() == 1) {
+            return new MessageIDTerm(emailIDs.get(0));
+        }
+        SearchTerm[] terms = new SearchTerm[emailIDs.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = new MessageIDTerm(emailIDs.get(i));
+        }
+        return new OrTerm(terms);
+    }
+
     /**
      * Retrieve flag name by mask
      *
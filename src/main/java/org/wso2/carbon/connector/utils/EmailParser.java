@@ -17,6 +17,7 @@
  */
 package org.wso2.carbon.connector.utils;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.mail.util.MimeMessageParser;
 import org.wso2.carbon.connector.exception.EmailParsingException;
 import org.wso2.carbon.connector.pojo.Attachment;
@@ -24,10 +25,28 @@ import org.wso2.carbon.connector.pojo.EmailMessage;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.activation.DataSource;
+import javax.mail.Address;
 import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.UIDFolder;
+import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeUtility;
 
 import static java.lang.String.format;
 
@@ -36,25 +55,59 @@ import static java.lang.String.format;
  */
 public final class EmailParser {
 
+    private static final String MULTIPART = "multipart/*";
+    private static final String PART_PATH_SEPARATOR = ".";
+    private static final String PART_PATH_SEPARATOR_REGEX = "\\.";
+    private static final int MAX_PARSER_THREADS = Runtime.getRuntime().availableProcessors();
+
     private EmailParser() {
 
     }
 
+    /**
+     * Threads shared by all the list operations to parse messages in parallel. Created on first use.
+     */
+    private static final class ParserExecutor {
+
+        private static final String THREAD_NAME = "email-parser-";
+        private static final int QUEUE_CAPACITY = 1024;
+        private static final AtomicInteger threadCount = new AtomicInteger();
+
+        // Parsing falls back to the calling thread if the queue is full
+        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(MAX_PARSER_THREADS,
+                MAX_PARSER_THREADS, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        static {
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
+
+        private ParserExecutor() {
+
+        }
+    }
+
     /**
      * Gets email content and attachments
      *
-     * @param messages List of messages to be parsed
+     * @param messages       List of messages to be parsed
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk, or a negative value to never
+     *                       spill attachments
      * @return Parsed messages
      * @throws EmailParsingException if failed to parse content
      */
-    public static List<EmailMessage> parseMessageList(List<Message> messages) throws EmailParsingException {
+    public static List<EmailMessage> parseMessageList(List<Message> messages, int spillThreshold)
+            throws EmailParsingException {
 
         List<EmailMessage> messagesList = new ArrayList<>();
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(javax.mail.Message.class.getClassLoader());
             for (Message message : messages) {
-                messagesList.add(parseMessage((MimeMessage) message));
+                messagesList.add(parseMessage((MimeMessage) message, spillThreshold));
             }
         } finally {
             Thread.currentThread().setContextClassLoader(classLoader);
@@ -62,13 +115,330 @@ public final class EmailParser {
         return messagesList;
     }
 
+    /**
+     * Gets email content and attachments, parsing the messages in parallel on the shared parser threads. The parsed
+     * messages are returned in the order of the given messages.
+     * <p>
+     * The messages are split among the given number of workers, one of which is the calling thread. Parsing only
+     * benefits from parallelism once the message content has been prefetched, since messages of a folder are
+     * otherwise fetched one at a time over the same connection. If parsing fails, the workers are interrupted and
+     * waited for, so that none of them reads from the folder once this method returns.
+     *
+     * @param messages       List of messages to be parsed
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk, or a negative value to never
+     *                       spill attachments
+     * @param parallelism    Maximum number of messages parsed in parallel
+     * @return Parsed messages
+     * @throws EmailParsingException if failed to parse content
+     */
+    public static List<EmailMessage> parseMessageList(List<Message> messages, int spillThreshold, int parallelism)
+            throws EmailParsingException {
+
+        int workers = Math.min(Math.min(parallelism, MAX_PARSER_THREADS), messages.size());
+        if (workers <= 1) {
+            return parseMessageList(messages, spillThreshold);
+        }
+        EmailMessage[] parsedMessages = new EmailMessage[messages.size()];
+        List<ParserTask> tasks = new ArrayList<>();
+        boolean parsed = false;
+        try {
+            for (int worker = 1; worker < workers; worker++) {
+                ParserTask task = new ParserTask(messages, worker, workers, spillThreshold, parsedMessages);
+                task.future = ParserExecutor.EXECUTOR.submit(task);
+                tasks.add(task);
+            }
+            parseMessages(messages, 0, workers, spillThreshold, parsedMessages);
+            for (ParserTask task : tasks) {
+                task.future.get();
+            }
+            parsed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailParsingException("Interrupted while parsing messages.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EmailParsingException) {
+                throw (EmailParsingException) e.getCause();
+            }
+            throw new EmailParsingException(format("Error occurred while parsing messages. %s",
+                    e.getCause().getMessage()), e.getCause());
+        } finally {
+            if (!parsed) {
+                for (ParserTask task : tasks) {
+                    task.abort();
+                }
+            }
+        }
+        return new ArrayList<>(Arrays.asList(parsedMessages));
+    }
+
+    /**
+     * Parses every n-th message starting from the given index
+     *
+     * @param messages       List of messages to be parsed
+     * @param firstIndex     Index of the first message to be parsed
+     * @param step           Number of messages between two parsed messages
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk
+     * @param parsedMessages Array to set the parsed messages in, at the same index as the message
+     * @throws EmailParsingException if failed to parse content
+     */
+    private static void parseMessages(List<Message> messages, int firstIndex, int step, int spillThreshold,
+                                      EmailMessage[] parsedMessages) throws EmailParsingException {
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(javax.mail.Message.class.getClassLoader());
+            for (int i = firstIndex; i < messages.size(); i += step) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new EmailParsingException("Interrupted while parsing messages.", new InterruptedException());
+                }
+                parsedMessages[i] = parseMessage((MimeMessage) messages.get(i), spillThreshold);
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        }
+    }
+
+    /**
+     * Parses every n-th message on a parser thread. A task that has not started yet when it is aborted never runs,
+     * while a running task is interrupted and waited for.
+     */
+    private static final class ParserTask implements Callable<Void> {
+
+        private final List<Message> messages;
+        private final int firstIndex;
+        private final int step;
+        private final int spillThreshold;
+        private final EmailMessage[] parsedMessages;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private Future<Void> future;
+
+        ParserTask(List<Message> messages, int firstIndex, int step, int spillThreshold,
+                   EmailMessage[] parsedMessages) {
+
+            this.messages = messages;
+            this.firstIndex = firstIndex;
+            this.step = step;
+            this.spillThreshold = spillThreshold;
+            this.parsedMessages = parsedMessages;
+        }
+
+        @Override
+        public Void call() throws EmailParsingException {
+
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                parseMessages(messages, firstIndex, step, spillThreshold, parsedMessages);
+            } finally {
+                finished.countDown();
+            }
+            return null;
+        }
+
+        /**
+         * Stops the task and waits until it no longer reads messages
+         */
+        void abort() {
+
+            if (started.compareAndSet(false, true)) {
+                future.cancel(false);
+                return;
+            }
+            future.cancel(true);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the headers and the structure of the emails without retrieving the content. The content of the body and
+     * the attachments is identified by the UID of the message and the path of the respective part, and is retrieved
+     * from the server only when requested.
+     *
+     * @param messages       List of messages to be parsed
+     * @param folder         Folder containing the messages
+     * @param connectionName Name of the connection used to retrieve the messages
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk when retrieved, or a negative
+     *                       value to never spill attachments
+     * @return Parsed messages
+     * @throws EmailParsingException if failed to parse the message structure
+     */
+    public static List<EmailMessage> parseMessageStructureList(List<Message> messages, UIDFolder folder,
+                                                               String connectionName, int spillThreshold)
+            throws EmailParsingException {
+
+        List<EmailMessage> messagesList = new ArrayList<>();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(javax.mail.Message.class.getClassLoader());
+            long uidValidity = folder.getUIDValidity();
+            for (Message message : messages) {
+                EmailMessage emailMessage = new EmailMessage();
+                parseHeaders((MimeMessage) message, emailMessage);
+                List<Attachment> attachments = new ArrayList<>();
+                parseStructure(message, StringUtils.EMPTY, emailMessage, attachments);
+                emailMessage.setAttachments(attachments);
+                emailMessage.setConnectionName(connectionName);
+                emailMessage.setFolder(message.getFolder().getFullName());
+                emailMessage.setUidValidity(uidValidity);
+                emailMessage.setUid(folder.getUID(message));
+                emailMessage.setContentLoaded(false);
+                emailMessage.setSpillThreshold(spillThreshold);
+                messagesList.add(emailMessage);
+            }
+        } catch (MessagingException | IOException e) {
+            throw new EmailParsingException(format("Error occurred while retrieving message structure. %s ",
+                    e.getMessage()), e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        }
+        return messagesList;
+    }
+
+    /**
+     * Gets a part of a message from its path
+     *
+     * @param message  Message containing the part
+     * @param partPath Path of the part as the dot separated indexes of the parts in the nested multiparts
+     * @return The part in the path
+     * @throws EmailParsingException if the part does not exist in the message
+     */
+    public static Part getPart(Message message, String partPath) throws EmailParsingException {
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(javax.mail.Message.class.getClassLoader());
+            Part part = message;
+            if (StringUtils.isEmpty(partPath)) {
+                return part;
+            }
+            for (String index : partPath.split(PART_PATH_SEPARATOR_REGEX)) {
+                Multipart multipart = (Multipart) part.getContent();
+                part = multipart.getBodyPart(Integer.parseInt(index));
+            }
+            return part;
+        } catch (MessagingException | IOException | ClassCastException | IndexOutOfBoundsException e) {
+            throw new EmailParsingException(format("Error occurred while retrieving message part: %s. %s",
+                    partPath, e.getMessage()), e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        }
+    }
+
+    /**
+     * Gets the headers of a message
+     *
+     * @param message      Message to be parsed
+     * @param emailMessage Email to set the headers in
+     * @throws MessagingException if failed to retrieve the headers
+     */
+    private static void parseHeaders(MimeMessage message, EmailMessage emailMessage) throws MessagingException {
+
+        emailMessage.setEmailId(message.getMessageID());
+        emailMessage.setTo(getRecipients(message, Message.RecipientType.TO));
+        emailMessage.setFrom(getFirstAddress(message.getFrom()));
+        emailMessage.setCc(getRecipients(message, Message.RecipientType.CC));
+        emailMessage.setBcc(getRecipients(message, Message.RecipientType.BCC));
+        emailMessage.setSubject(message.getSubject());
+        emailMessage.setReplyTo(getFirstAddress(message.getReplyTo()));
+    }
+
+    /**
+     * Walks the MIME tree of a part and records the paths of the body parts and the attachments, the same way they
+     * are identified when the message is parsed in full
+     *
+     * @param part         Part to be parsed
+     * @param path         Path of the part
+     * @param emailMessage Email to set the paths of the body parts in
+     * @param attachments  List to add the attachments to
+     * @throws MessagingException if failed to retrieve the part structure
+     * @throws IOException        if failed to retrieve the multipart content
+     */
+    private static void parseStructure(Part part, String path, EmailMessage emailMessage,
+                                       List<Attachment> attachments) throws MessagingException, IOException {
+
+        boolean isAttachment = Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition());
+        if (part.isMimeType(ContentTypes.TEXT_PLAIN) && emailMessage.getTextPartPath() == null && !isAttachment) {
+            emailMessage.setTextPartPath(path);
+        } else if (part.isMimeType(ContentTypes.TEXT_HTML) && emailMessage.getHtmlPartPath() == null
+                && !isAttachment) {
+            emailMessage.setHtmlPartPath(path);
+        } else if (part.isMimeType(MULTIPART)) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                String partPath = path.isEmpty() ? Integer.toString(i) : path + PART_PATH_SEPARATOR + i;
+                parseStructure(multipart.getBodyPart(i), partPath, emailMessage, attachments);
+            }
+        } else {
+            Attachment attachment = new Attachment();
+            attachment.setName(part.getFileName() != null ? MimeUtility.decodeText(part.getFileName()) : null);
+            attachment.setContentType(getBaseMimeType(part.getContentType()));
+            attachment.setPartPath(path);
+            attachments.add(attachment);
+        }
+    }
+
+    /**
+     * Gets the recipients of the given type
+     *
+     * @param message Message to retrieve recipients from
+     * @param type    Recipient type
+     * @return List of recipients
+     * @throws MessagingException if failed to retrieve the recipients
+     */
+    private static List<Address> getRecipients(MimeMessage message, Message.RecipientType type)
+            throws MessagingException {
+
+        Address[] recipients = message.getRecipients(type);
+        return recipients != null ? Arrays.asList(recipients) : new ArrayList<>();
+    }
+
+    /**
+     * Gets the first address of a list of addresses
+     *
+     * @param addresses List of addresses
+     * @return The first address, or null if there are none
+     */
+    private static String getFirstAddress(Address[] addresses) {
+
+        if (addresses == null || addresses.length == 0) {
+            return null;
+        }
+        return ((InternetAddress) addresses[0]).getAddress();
+    }
+
+    /**
+     * Gets the content type without the parameters
+     *
+     * @param contentType Full content type
+     * @return Base content type in lower case
+     */
+    private static String getBaseMimeType(String contentType) {
+
+        int index = contentType.indexOf(';');
+        return (index >= 0 ? contentType.substring(0, index) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Parses a message and obtains the email content
      *
-     * @param message Message to be parsed
+     * @param message        Message to be parsed
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk
      * @throws EmailParsingException if failed to parse the message
      */
-    private static EmailMessage parseMessage(MimeMessage message)
+    private static EmailMessage parseMessage(MimeMessage message, int spillThreshold)
             throws EmailParsingException {
 
         MimeMessageParser parser = new MimeMessageParser(message);
@@ -77,7 +447,7 @@ public final class EmailParser {
             parser.parse();
             emailMessage.setTextContent(parser.getPlainContent());
             emailMessage.setHtmlContent(parser.getHtmlContent());
-            emailMessage.setAttachments(getAttachmentList(parser.getAttachmentList()));
+            emailMessage.setAttachments(getAttachmentList(parser.getAttachmentList(), spillThreshold));
             emailMessage.setEmailId(parser.getMimeMessage().getMessageID());
             emailMessage.setTo(parser.getTo());
             emailMessage.setFrom(parser.getFrom());
@@ -95,18 +465,20 @@ public final class EmailParser {
     /**
      * Parse attachments
      *
-     * @param dataSources List of attachments
+     * @param dataSources    List of attachments
+     * @param spillThreshold Size in bytes above which attachments are spilled to disk
      * @return Parsed list of attachments
      * @throws IOException if failed to parse content
      */
-    private static List<Attachment> getAttachmentList(List<DataSource> dataSources) throws IOException {
+    private static List<Attachment> getAttachmentList(List<DataSource> dataSources, int spillThreshold)
+            throws IOException {
 
         List<Attachment> attachments = new ArrayList<>();
         for (DataSource dataSource : dataSources) {
             Attachment attachment = new Attachment();
             attachment.setName(dataSource.getName());
             attachment.setContentType(dataSource.getContentType());
-            attachment.setContent(dataSource.getInputStream());
+            AttachmentStore.storeInMemoryContent(attachment, dataSource.getInputStream(), spillThreshold);
             attachments.add(attachment);
         }
         return attachments;
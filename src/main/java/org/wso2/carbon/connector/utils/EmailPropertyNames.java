@@ -23,6 +23,7 @@ package org.wso2.carbon.connector.utils;
 public final class EmailPropertyNames {
 
     public static final String PROPERTY_EMAILS = "PROPERTY_EMAILS";
+    public static final String PROPERTY_CONTINUATION_TOKEN = "CONTINUATION_TOKEN";
     public static final String PROPERTY_ATTACHMENT_TYPE = "ATTACHMENT_TYPE";
     public static final String PROPERTY_ATTACHMENT_NAME = "ATTACHMENT_NAME";
     public static final String PROPERTY_HTML_CONTENT = "HTML_CONTENT";
@@ -0,0 +1,320 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import com.sun.mail.iap.Argument;
+import com.sun.mail.iap.ProtocolException;
+import com.sun.mail.iap.Response;
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import com.sun.mail.imap.protocol.BASE64MailboxEncoder;
+import com.sun.mail.imap.protocol.IMAPProtocol;
+import com.sun.mail.imap.protocol.IMAPResponse;
+import com.sun.mail.imap.protocol.SearchSequence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeUtility;
+import javax.mail.search.SearchTerm;
+
+import static java.lang.String.format;
+
+/**
+ * Utilities for issuing IMAP commands that are not exposed by the Java Mail API
+ */
+public final class IMAPUtils {
+
+    private static final String CAPABILITY_ESEARCH = "ESEARCH";
+    private static final String CAPABILITY_CONTEXT_SEARCH = "CONTEXT=SEARCH";
+    private static final String CAPABILITY_MOVE = "MOVE";
+    private static final String CAPABILITY_UIDPLUS = "UIDPLUS";
+    private static final String UID_SEARCH_COMMAND = "UID SEARCH";
+    private static final String UID_COPY_COMMAND = "UID COPY";
+    private static final String UID_MOVE_COMMAND = "UID MOVE";
+    private static final String UID_STORE_COMMAND = "UID STORE";
+    private static final String UID_EXPUNGE_COMMAND = "UID EXPUNGE";
+    private static final String ADD_FLAGS_SILENTLY = "+FLAGS.SILENT";
+    private static final String DELETED_FLAG = "(\\Deleted)";
+    private static final String SEARCH_RESPONSE = "SEARCH";
+    private static final String ESEARCH_RESPONSE = "ESEARCH";
+    private static final Pattern PARTIAL_RESULT = Pattern.compile("PARTIAL\\s+\\(\\S+\\s+([^)\\s]+)\\)",
+            Pattern.CASE_INSENSITIVE);
+    private static final String NIL = "NIL";
+
+    private IMAPUtils() {
+
+    }
+
+    /**
+     * Searches the UIDs of the messages matching the search term, starting from the given UID.
+     * <p>
+     * If the server supports ESEARCH with PARTIAL results (RFC 5267), only the requested window of UIDs is returned
+     * by the server. Otherwise, the UIDs from the given UID onwards are searched and the window is selected locally,
+     * hence the server returns all the matching UIDs up to the end of the folder on each search.
+     *
+     * @param folder  folder to search in
+     * @param term    search term, or null to match all messages
+     * @param fromUID smallest UID to be considered
+     * @param offset  number of matching UIDs to skip, not negative
+     * @param limit   maximum number of UIDs to return, greater than 0 and not exceeding Integer.MAX_VALUE together
+     *                with the offset
+     * @return UIDs of the matching messages in ascending order
+     * @throws MessagingException if the search fails
+     */
+    public static long[] searchUIDs(IMAPFolder folder, SearchTerm term, long fromUID, int offset, int limit)
+            throws MessagingException {
+
+        return (long[]) folder.doCommand(protocol -> {
+            boolean partial = protocol.hasCapability(CAPABILITY_ESEARCH)
+                    && protocol.hasCapability(CAPABILITY_CONTEXT_SEARCH);
+            Argument args = new Argument();
+            if (partial) {
+                Argument returnOptions = new Argument();
+                returnOptions.writeAtom("PARTIAL");
+                returnOptions.writeAtom((offset + 1) + ":" + (offset + limit));
+                args.writeAtom("RETURN");
+                args.writeArgument(returnOptions);
+            }
+            String charset = null;
+            if (term != null && !SearchSequence.isAscii(term)) {
+                charset = MimeUtility.mimeCharset(MimeUtility.getDefaultJavaCharset());
+                args.writeAtom("CHARSET");
+                args.writeAtom(charset);
+            }
+            args.writeAtom("UID");
+            args.writeAtom(fromUID + ":*");
+            if (term != null) {
+                try {
+                    args.append(new SearchSequence(protocol).generateSequence(term, charset));
+                } catch (IOException e) {
+                    throw new ProtocolException(format("Failed to generate search criteria. %s", e.getMessage()));
+                }
+            }
+
+            Response[] responses = protocol.command(UID_SEARCH_COMMAND, args);
+            Response response = responses[responses.length - 1];
+            List<Long> matches = new ArrayList<>();
+            if (response.isOK()) {
+                for (int i = 0; i < responses.length - 1; i++) {
+                    if (!(responses[i] instanceof IMAPResponse)) {
+                        continue;
+                    }
+                    IMAPResponse imapResponse = (IMAPResponse) responses[i];
+                    if (imapResponse.keyEquals(SEARCH_RESPONSE)) {
+                        long uid;
+                        while ((uid = imapResponse.readLong()) != -1) {
+                            matches.add(uid);
+                        }
+                        responses[i] = null;
+                    } else if (imapResponse.keyEquals(ESEARCH_RESPONSE)) {
+                        matches.addAll(parsePartialResult(imapResponse.getRest()));
+                        responses[i] = null;
+                    }
+                }
+                // "*" always matches the largest UID, even if it is smaller than the requested start
+                matches.removeIf(match -> match < fromUID);
+                Collections.sort(matches);
+                if (!partial) {
+                    int from = Math.min(offset, matches.size());
+                    matches = new ArrayList<>(matches.subList(from, Math.min(from + limit, matches.size())));
+                }
+            }
+            protocol.notifyResponseHandlers(responses);
+            protocol.handleResult(response);
+            long[] uids = new long[matches.size()];
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = matches.get(i);
+            }
+            return uids;
+        });
+    }
+
+    /**
+     * Copies messages to another folder by UID with a single UID COPY command
+     *
+     * @param folder      folder containing the messages
+     * @param uids        UIDs of the messages
+     * @param destination full name of the folder to copy the messages to
+     * @throws MessagingException if the messages could not be copied
+     */
+    public static void copyUIDs(IMAPFolder folder, long[] uids, String destination) throws MessagingException {
+
+        String uidSet = toUIDSet(uids);
+        folder.doCommand(protocol -> {
+            command(protocol, UID_COPY_COMMAND, getTransferArguments(uidSet, destination));
+            return null;
+        });
+    }
+
+    /**
+     * Moves messages to another folder by UID.
+     * <p>
+     * If the server supports MOVE (RFC 6851), the messages are moved with a single UID MOVE command. Otherwise, the
+     * messages are copied with UID COPY, marked as DELETED with UID STORE and removed from the folder with
+     * UID EXPUNGE. If the server does not support UIDPLUS either, the messages are left marked as DELETED in the
+     * folder, unless expunging the whole folder is allowed, which also removes any other message marked as DELETED.
+     *
+     * @param folder        folder containing the messages
+     * @param uids          UIDs of the messages
+     * @param destination   full name of the folder to move the messages to
+     * @param expungeFolder whether the folder may be expunged if the server supports neither MOVE nor UIDPLUS
+     * @return true if the messages were removed from the folder, false if they were only marked as DELETED
+     * @throws MessagingException if the messages could not be moved
+     */
+    public static boolean moveUIDs(IMAPFolder folder, long[] uids, String destination, boolean expungeFolder)
+            throws MessagingException {
+
+        String uidSet = toUIDSet(uids);
+        return (Boolean) folder.doCommand(protocol -> {
+            if (protocol.hasCapability(CAPABILITY_MOVE)) {
+                command(protocol, UID_MOVE_COMMAND, getTransferArguments(uidSet, destination));
+                return true;
+            }
+            command(protocol, UID_COPY_COMMAND, getTransferArguments(uidSet, destination));
+            Argument storeArgs = new Argument();
+            storeArgs.writeAtom(uidSet);
+            storeArgs.writeAtom(ADD_FLAGS_SILENTLY);
+            storeArgs.writeAtom(DELETED_FLAG);
+            command(protocol, UID_STORE_COMMAND, storeArgs);
+            if (protocol.hasCapability(CAPABILITY_UIDPLUS)) {
+                Argument expungeArgs = new Argument();
+                expungeArgs.writeAtom(uidSet);
+                command(protocol, UID_EXPUNGE_COMMAND, expungeArgs);
+                return true;
+            }
+            if (expungeFolder) {
+                protocol.expunge();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Checks whether messages can be moved out of the folder without expunging the whole folder, i.e. whether the
+     * server supports either MOVE or UIDPLUS
+     *
+     * @param folder folder containing the messages
+     * @return true if only the moved messages are removed from the folder
+     * @throws MessagingException if the capabilities of the server could not be retrieved
+     */
+    public static boolean canMoveUIDs(IMAPFolder folder) throws MessagingException {
+
+        IMAPStore store = (IMAPStore) folder.getStore();
+        return store.hasCapability(CAPABILITY_MOVE) || store.hasCapability(CAPABILITY_UIDPLUS);
+    }
+
+    /**
+     * Issues a command, letting the folder process the untagged responses, such as EXPUNGE responses
+     *
+     * @param protocol protocol of the folder
+     * @param command  command to be issued
+     * @param args     arguments of the command
+     * @throws ProtocolException if the command fails
+     */
+    private static void command(IMAPProtocol protocol, String command, Argument args) throws ProtocolException {
+
+        Response[] responses = protocol.command(command, args);
+        protocol.notifyResponseHandlers(responses);
+        protocol.handleResult(responses[responses.length - 1]);
+    }
+
+    /**
+     * Gets the arguments of a UID COPY or UID MOVE command
+     *
+     * @param uidSet      UIDs of the messages
+     * @param destination full name of the destination folder
+     * @return Command arguments
+     */
+    private static Argument getTransferArguments(String uidSet, String destination) {
+
+        Argument args = new Argument();
+        args.writeAtom(uidSet);
+        args.writeString(BASE64MailboxEncoder.encode(destination));
+        return args;
+    }
+
+    /**
+     * Formats UIDs as an IMAP sequence set, collapsing consecutive UIDs into ranges, e.g. "1:3,7,9:10"
+     *
+     * @param uids UIDs to be formatted
+     * @return Sequence set
+     */
+    private static String toUIDSet(long[] uids) {
+
+        long[] sorted = uids.clone();
+        Arrays.sort(sorted);
+        StringBuilder uidSet = new StringBuilder();
+        int i = 0;
+        while (i < sorted.length) {
+            long start = sorted[i];
+            long end = start;
+            while (i + 1 < sorted.length && sorted[i + 1] <= end + 1) {
+                end = sorted[++i];
+            }
+            if (uidSet.length() > 0) {
+                uidSet.append(',');
+            }
+            uidSet.append(start);
+            if (end != start) {
+                uidSet.append(':').append(end);
+            }
+            i++;
+        }
+        return uidSet.toString();
+    }
+
+    /**
+     * Parses the UIDs of a PARTIAL result in an ESEARCH response, e.g. "(TAG "A1") UID PARTIAL (1:10 4:6,9)"
+     *
+     * @param response remainder of the ESEARCH response
+     * @return UIDs in the response
+     * @throws ProtocolException if the response contains an invalid UID
+     */
+    private static List<Long> parsePartialResult(String response) throws ProtocolException {
+
+        List<Long> uids = new ArrayList<>();
+        Matcher matcher = PARTIAL_RESULT.matcher(response);
+        if (!matcher.find() || NIL.equalsIgnoreCase(matcher.group(1))) {
+            return uids;
+        }
+        try {
+            for (String range : matcher.group(1).split(",")) {
+                int separator = range.indexOf(':');
+                if (separator < 0) {
+                    uids.add(Long.parseLong(range));
+                } else {
+                    long start = Long.parseLong(range.substring(0, separator));
+                    long end = Long.parseLong(range.substring(separator + 1));
+                    for (long uid = Math.min(start, end); uid <= Math.max(start, end); uid++) {
+                        uids.add(uid);
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new ProtocolException(format("Invalid UID in search response: %s", response));
+        }
+        return uids;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+
+import static java.lang.String.format;
+
+/**
+ * Cache of parsed addresses keyed by the raw address list, since emails are mostly sent from and to the same few
+ * address lists
+ */
+public final class InternetAddressCache {
+
+    private static final Log log = LogFactory.getLog(InternetAddressCache.class);
+
+    private static final int MAX_CACHED_ADDRESS_LISTS = 1024;
+
+    private static final BoundedCache<String, InternetAddress[]> ADDRESSES =
+            new BoundedCache<>(MAX_CACHED_ADDRESS_LISTS);
+
+    private InternetAddressCache() {
+
+    }
+
+    /**
+     * Parses a comma separated list of addresses, as {@link InternetAddress#parse(String)}
+     *
+     * @param addresses comma separated list of addresses
+     * @return copies of the parsed addresses
+     * @throws AddressException if the addresses are invalid
+     */
+    public static InternetAddress[] parse(String addresses) throws AddressException {
+
+        InternetAddress[] parsed = ADDRESSES.get(addresses);
+        if (parsed == null) {
+            parsed = InternetAddress.parse(addresses);
+            ADDRESSES.put(addresses, parsed);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Parsed %d address(es). Cache hits: %d, misses: %d.", parsed.length,
+                        ADDRESSES.getHitCount(), ADDRESSES.getMissCount()));
+            }
+        }
+        // Copies of the cached addresses are handed out, since InternetAddress is mutable
+        InternetAddress[] copies = new InternetAddress[parsed.length];
+        for (int i = 0; i < parsed.length; i++) {
+            copies[i] = (InternetAddress) parsed[i].clone();
+        }
+        return copies;
+    }
+}
@@ -18,23 +18,24 @@
 package org.wso2.carbon.connector.utils;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.tika.Tika;
+import org.apache.synapse.MessageContext;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Map;
+import java.util.function.Function;
 import javax.activation.DataHandler;
+import javax.activation.DataSource;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Session;
-import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.internet.MimePart;
 
+import static java.lang.String.format;
 import static javax.mail.Part.ATTACHMENT;
 import static javax.mail.Part.INLINE;
 
@@ -53,6 +54,7 @@ public final class MessageBuilder {
     private String contentType;
     private String contentTransferEncoding;
     private String content;
+    private MessageContext messageContext;
 
     private MessageBuilder(Session s) {
 
@@ -70,6 +72,25 @@ public final class MessageBuilder {
         return new MessageBuilder(session);
     }
 
+    /**
+     * Creates a new instance for the specified session from a template. The headers and body of the template are
+     * set, with its placeholders filled with the given values.
+     *
+     * @param session  the session for which the message is going to be created
+     * @param template compiled template of the message
+     * @param values   values of the placeholders by name
+     * @return a new instance.
+     * @throws MessagingException if the filled fields of the template are invalid
+     */
+    public static MessageBuilder newMessage(Session session, MessageTemplate template,
+                                            Function<String, String> values) throws MessagingException {
+
+        MessageBuilder builder = new MessageBuilder(session);
+        template.applyHeaders(builder.message, values);
+        return builder.withBody(template.fillContent(values), template.getContentType(), template.getEncoding(),
+                template.getContentTransferEncoding());
+    }
+
     /**
      * Adds the subject to the message that is being built.
      *
@@ -95,7 +116,7 @@ public final class MessageBuilder {
     public MessageBuilder replyTo(String replyTo) throws MessagingException {
 
         if (!StringUtils.isEmpty(replyTo)) {
-            message.setReplyTo(InternetAddress.parse(replyTo));
+            message.setReplyTo(InternetAddressCache.parse(replyTo));
         }
         return this;
     }
@@ -109,7 +130,7 @@ public final class MessageBuilder {
      */
     public MessageBuilder fromAddresses(String fromAddresses) throws MessagingException {
 
-        this.message.addFrom(InternetAddress.parse(fromAddresses));
+        this.message.addFrom(InternetAddressCache.parse(fromAddresses));
         return this;
     }
 
@@ -183,7 +204,7 @@ public final class MessageBuilder {
         if (!StringUtils.isEmpty(recipient)) {
             message.setRecipients(
                     recipientType,
-                    InternetAddress.parse(recipient)
+                    InternetAddressCache.parse(recipient)
             );
         }
     }
@@ -220,9 +241,23 @@ public final class MessageBuilder {
      */
     public MessageBuilder withAttachments(String attachments) {
 
+        return withAttachments(attachments, null);
+    }
+
+    /**
+     * Adds attachments to the email. Besides file paths, attachments may refer to content held by the message
+     * context, as resolved by {@link AttachmentSourceResolver}.
+     *
+     * @param attachments    comma separated attachments to be added to the email
+     * @param messageContext message context the attachments are resolved from
+     * @return MessageBuilder instance
+     */
+    public MessageBuilder withAttachments(String attachments, MessageContext messageContext) {
+
         if (!StringUtils.isEmpty(attachments)) {
             this.attachments = attachments;
         }
+        this.messageContext = messageContext;
         return this;
     }
 
@@ -241,7 +276,12 @@ public final class MessageBuilder {
             multipart.addBodyPart(body);
             String[] attachFiles = attachments.split(",");
             for (String filePath : attachFiles) {
-                addAttachment(multipart, filePath);
+                String source = filePath.trim();
+                if (messageContext != null && AttachmentSourceResolver.isSupported(source)) {
+                    addAttachment(multipart, AttachmentSourceResolver.resolve(messageContext, source));
+                } else {
+                    addAttachment(multipart, filePath);
+                }
             }
             message.setContent(multipart, MULTIPART_TYPE);
         } else {
@@ -278,18 +318,38 @@ public final class MessageBuilder {
 
         MimeBodyPart part = new MimeBodyPart();
         File file = new File(filePath);
-        try (InputStream fin = new FileInputStream(file)) {
-            part.setDisposition(ATTACHMENT);
-            part.setFileName(file.getName());
-            Tika tika = new Tika();
-            String fileContentType = tika.detect(file);
-            DataHandler dataHandler = new DataHandler(new EmailAttachmentDataSource(file.getName(), fin,
-                    fileContentType));
-            part.setDataHandler(dataHandler);
-            part.setHeader(CONTENT_TYPE_HEADER, dataHandler.getContentType());
-            part.setHeader(CONTENT_TRANSFER_ENCODING_HEADER, this.contentTransferEncoding);
-            multipart.addBodyPart(part);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(format("Attachment file: %s does not exist.", filePath));
         }
+        part.setDisposition(ATTACHMENT);
+        part.setFileName(file.getName());
+        String fileContentType = ContentTypeDetector.detect(file);
+        // The file is streamed when the message is written, rather than being copied into memory
+        DataHandler dataHandler = new DataHandler(new FileAttachmentDataSource(file.getName(), file.toPath(),
+                fileContentType));
+        part.setDataHandler(dataHandler);
+        part.setHeader(CONTENT_TYPE_HEADER, dataHandler.getContentType());
+        part.setHeader(CONTENT_TRANSFER_ENCODING_HEADER, this.contentTransferEncoding);
+        multipart.addBodyPart(part);
+    }
+
+    /**
+     * Add attachment to message, streaming its content from the given data source when the message is written
+     *
+     * @param multipart  Multi part body the messages should be added to
+     * @param dataSource Content of the attachment
+     * @throws MessagingException if failed to set attachments
+     */
+    private void addAttachment(MimeMultipart multipart, DataSource dataSource) throws MessagingException {
+
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDisposition(ATTACHMENT);
+        part.setFileName(dataSource.getName());
+        DataHandler dataHandler = new DataHandler(dataSource);
+        part.setDataHandler(dataHandler);
+        part.setHeader(CONTENT_TYPE_HEADER, dataHandler.getContentType());
+        part.setHeader(CONTENT_TRANSFER_ENCODING_HEADER, this.contentTransferEncoding);
+        multipart.addBodyPart(part);
     }
 
 }
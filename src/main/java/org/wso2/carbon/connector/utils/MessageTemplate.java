@@ -0,0 +1,264 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeUtility;
+
+import static java.lang.String.format;
+
+/**
+ * Email template compiled once and filled for each email sent.
+ * <p>
+ * Fields of the template may contain placeholders of the form ${name}. The headers of the fields without placeholders
+ * are parsed and encoded when the template is compiled, hence are set as they are on each email. Only the fields with
+ * placeholders are filled, parsed and encoded for each email.
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 256;
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+    private static final String FROM_HEADER = "From";
+    private static final String TO_HEADER = "To";
+    private static final String CC_HEADER = "Cc";
+    private static final String BCC_HEADER = "Bcc";
+    private static final String REPLY_TO_HEADER = "Reply-To";
+    private static final String SUBJECT_HEADER = "Subject";
+    // Length of "Subject: ", after which the header is folded
+    private static final int SUBJECT_HEADER_LENGTH = 9;
+
+    // Keyed by the template name along with its fields, hence a template that changes is compiled again
+    private static final BoundedCache<List<String>, MessageTemplate> TEMPLATES =
+            new BoundedCache<>(MAX_CACHED_TEMPLATES);
+
+    private final List<String[]> staticHeaders = new ArrayList<>();
+    private final List<AddressField> dynamicAddresses = new ArrayList<>();
+    private final TemplateText subject;
+    private final TemplateText content;
+    private final String contentType;
+    private final String encoding;
+    private final String contentTransferEncoding;
+
+    private MessageTemplate(String from, String to, String cc, String bcc, String replyTo, String subject,
+                            String content, String contentType, String encoding, String contentTransferEncoding)
+            throws MessagingException {
+
+        addAddressField(FROM_HEADER, from);
+        addAddressField(TO_HEADER, to);
+        addAddressField(CC_HEADER, cc);
+        addAddressField(BCC_HEADER, bcc);
+        addAddressField(REPLY_TO_HEADER, replyTo);
+        this.subject = new TemplateText(subject);
+        if (this.subject.isStatic() && StringUtils.isNotEmpty(subject)) {
+            staticHeaders.add(new String[]{SUBJECT_HEADER, encodeSubject(subject)});
+        }
+        this.content = new TemplateText(content);
+        this.contentType = contentType;
+        this.encoding = encoding;
+        this.contentTransferEncoding = contentTransferEncoding;
+    }
+
+    /**
+     * Gets a compiled template, compiling it if it is not cached already
+     *
+     * @param name                    name of the template
+     * @param from                    from addresses
+     * @param to                      to addresses
+     * @param cc                      cc addresses
+     * @param bcc                     bcc addresses
+     * @param replyTo                 reply-to addresses
+     * @param subject                 subject
+     * @param content                 content
+     * @param contentType             content type of the content
+     * @param encoding                encoding of the content
+     * @param contentTransferEncoding content transfer encoding
+     * @return compiled template
+     * @throws MessagingException if the fields without placeholders are invalid
+     */
+    public static MessageTemplate getTemplate(String name, String from, String to, String cc, String bcc,
+                                              String replyTo, String subject, String content, String contentType,
+                                              String encoding, String contentTransferEncoding)
+            throws MessagingException {
+
+        List<String> key = Arrays.asList(name, from, to, cc, bcc, replyTo, subject, content, contentType, encoding,
+                contentTransferEncoding);
+        MessageTemplate template = TEMPLATES.get(key);
+        if (template == null) {
+            template = new MessageTemplate(from, to, cc, bcc, replyTo, subject, content, contentType, encoding,
+                    contentTransferEncoding);
+            TEMPLATES.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Sets the headers of the template in an email, filling the placeholders with the given values
+     *
+     * @param message email to set the headers in
+     * @param values  values of the placeholders by name
+     * @throws MessagingException if the filled fields are invalid
+     */
+    void applyHeaders(MimeMessage message, Function<String, String> values) throws MessagingException {
+
+        for (String[] header : staticHeaders) {
+            message.setHeader(header[0], header[1]);
+        }
+        for (AddressField field : dynamicAddresses) {
+            String addresses = field.text.fill(values);
+            if (StringUtils.isNotEmpty(addresses)) {
+                message.setHeader(field.header, encodeAddresses(field.header, addresses));
+            }
+        }
+        if (!subject.isStatic()) {
+            String filledSubject = subject.fill(values);
+            if (StringUtils.isNotEmpty(filledSubject)) {
+                message.setHeader(SUBJECT_HEADER, encodeSubject(filledSubject));
+            }
+        }
+    }
+
+    /**
+     * Fills the placeholders of the content
+     *
+     * @param values values of the placeholders by name
+     * @return content of the email
+     */
+    String fillContent(Function<String, String> values) {
+
+        return content.fill(values);
+    }
+
+    String getContentType() {
+
+        return contentType;
+    }
+
+    String getEncoding() {
+
+        return encoding;
+    }
+
+    String getContentTransferEncoding() {
+
+        return contentTransferEncoding;
+    }
+
+    private void addAddressField(String header, String addresses) throws MessagingException {
+
+        TemplateText text = new TemplateText(addresses);
+        if (!text.isStatic()) {
+            dynamicAddresses.add(new AddressField(header, text));
+        } else if (StringUtils.isNotEmpty(addresses)) {
+            staticHeaders.add(new String[]{header, encodeAddresses(header, addresses)});
+        }
+    }
+
+    /**
+     * Encodes addresses as the value of a header, as set by {@link MimeMessage#setRecipients}
+     */
+    private static String encodeAddresses(String header, String addresses) throws MessagingException {
+
+        return InternetAddress.toString(InternetAddressCache.parse(addresses), header.length() + 2);
+    }
+
+    /**
+     * Encodes a subject as the value of a header, as set by {@link MimeMessage#setSubject}
+     */
+    private static String encodeSubject(String subject) throws MessagingException {
+
+        try {
+            return MimeUtility.fold(SUBJECT_HEADER_LENGTH, MimeUtility.encodeText(subject));
+        } catch (UnsupportedEncodingException e) {
+            throw new MessagingException(format("Encoding error while setting subject. %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Header of a field with addresses containing placeholders
+     */
+    private static final class AddressField {
+
+        private final String header;
+        private final TemplateText text;
+
+        AddressField(String header, TemplateText text) {
+
+            this.header = header;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Text split into literal segments and the placeholders between them
+     */
+    private static final class TemplateText {
+
+        private final String text;
+        private final List<String> literals = new ArrayList<>();
+        private final List<String> placeholders = new ArrayList<>();
+
+        TemplateText(String text) {
+
+            this.text = text;
+            if (text == null) {
+                return;
+            }
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int start = 0;
+            while (matcher.find()) {
+                literals.add(text.substring(start, matcher.start()));
+                placeholders.add(matcher.group(1).trim());
+                start = matcher.end();
+            }
+            literals.add(text.substring(start));
+        }
+
+        boolean isStatic() {
+
+            return placeholders.isEmpty();
+        }
+
+        String fill(Function<String, String> values) {
+
+            if (isStatic()) {
+                return text;
+            }
+            StringBuilder builder = new StringBuilder(text.length());
+            for (int i = 0; i < placeholders.size(); i++) {
+                builder.append(literals.get(i));
+                String value = values.apply(placeholders.get(i));
+                if (value != null) {
+                    builder.append(value);
+                }
+            }
+            builder.append(literals.get(placeholders.size()));
+            return builder.toString();
+        }
+    }
+}
@@ -7,8 +7,12 @@ import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPFactory;
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
 import org.wso2.carbon.connector.exception.ContentBuilderException;
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
 import org.wso2.carbon.connector.pojo.EmailMessage;
+import org.wso2.carbon.connector.pojo.RecipientStatus;
+import org.wso2.carbon.connector.pojo.SendStatus;
 
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +31,17 @@ public final class ResponseHandler {
     private static final QName ATTACHMENTS_ELEMENT = new QName("attachments");
     private static final QName ATTACHMENT_ELEMENT = new QName("attachment");
     private static final QName INDEX_ELEMENT = new QName("index");
+    private static final QName EMAIL_ID_ELEMENT = new QName("emailID");
+    private static final QName UID_ELEMENT = new QName("uid");
+    private static final QName UID_VALIDITY_ELEMENT = new QName("uidValidity");
+    private static final QName RESULT_ELEMENT = new QName("result");
+    private static final QName MESSAGE_ELEMENT = new QName("message");
+    private static final QName SUCCESS_ELEMENT = new QName("success");
+    private static final QName ERROR_ELEMENT = new QName("error");
+    private static final QName TRACKING_ID_ELEMENT = new QName("trackingId");
+    private static final QName STATUS_ELEMENT = new QName("status");
+    private static final QName RECIPIENT_ELEMENT = new QName("recipient");
+    private static final QName ADDRESS_ELEMENT = new QName("address");
 
     // Response constants
     private static final String START_TAG = "<result><success>";
@@ -94,6 +109,21 @@ public final class ResponseHandler {
             OMElement emailIndexElement = factory.createOMElement(INDEX_ELEMENT);
             emailIndexElement.addChild(factory.createOMText(Integer.toString(i)));
             emailElement.addChild(emailIndexElement);
+            EmailMessage emailMessage = emailMessages.get(i);
+            if (emailMessage.getEmailId() != null) {
+                OMElement emailIdElement = factory.createOMElement(EMAIL_ID_ELEMENT);
+                emailIdElement.addChild(factory.createOMText(emailMessage.getEmailId()));
+                emailElement.addChild(emailIdElement);
+            }
+            // UIDs are only available for folders supporting them, i.e. IMAP folders
+            if (emailMessage.getUid() > 0) {
+                OMElement uidElement = factory.createOMElement(UID_ELEMENT);
+                uidElement.addChild(factory.createOMText(Long.toString(emailMessage.getUid())));
+                emailElement.addChild(uidElement);
+                OMElement uidValidityElement = factory.createOMElement(UID_VALIDITY_ELEMENT);
+                uidValidityElement.addChild(factory.createOMText(Long.toString(emailMessage.getUidValidity())));
+                emailElement.addChild(uidValidityElement);
+            }
             OMElement attachmentsElement = factory.createOMElement(ATTACHMENTS_ELEMENT);
             for (int j = 0; j < emailMessages.get(i).getAttachments().size(); j++) {
                 OMElement attachmentElement = factory.createOMElement(ATTACHMENT_ELEMENT);
@@ -108,6 +138,127 @@ public final class ResponseHandler {
         axis2MsgCtx.getEnvelope().getBody().addChild(emailsElement);
     }
 
+    /**
+     * Sets the status of each email sent in a batch in body
+     *
+     * @param statuses       Send status of each email
+     * @param messageContext The message context that is processed
+     */
+    public static void setSendBatchResponse(List<SendStatus> statuses, MessageContext messageContext) {
+
+        SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+        OMElement resultElement = factory.createOMElement(RESULT_ELEMENT);
+        for (SendStatus status : statuses) {
+            OMElement messageElement = factory.createOMElement(MESSAGE_ELEMENT);
+            OMElement indexElement = factory.createOMElement(INDEX_ELEMENT);
+            indexElement.addChild(factory.createOMText(Integer.toString(status.getIndex())));
+            messageElement.addChild(indexElement);
+            OMElement successElement = factory.createOMElement(SUCCESS_ELEMENT);
+            successElement.addChild(factory.createOMText(Boolean.toString(status.isSuccess())));
+            messageElement.addChild(successElement);
+            if (status.getError() != null) {
+                OMElement errorElement = factory.createOMElement(ERROR_ELEMENT);
+                errorElement.addChild(factory.createOMText(status.getError()));
+                messageElement.addChild(errorElement);
+            }
+            resultElement.addChild(messageElement);
+        }
+        org.apache.axis2.context.MessageContext axis2MessageContext = ((org.apache.synapse.core.axis2.
+                Axis2MessageContext) messageContext).getAxis2MessageContext();
+        // The emails may have been read from a JSON payload, which would otherwise take precedence over the response
+        JsonUtil.removeJsonPayload(axis2MessageContext);
+        replaceBody(messageContext, resultElement);
+    }
+
+    /**
+     * Sets the status of the email sent to each recipient in body
+     *
+     * @param statuses       Send status of each recipient
+     * @param messageContext The message context that is processed
+     */
+    public static void setRecipientStatusResponse(List<RecipientStatus> statuses, MessageContext messageContext) {
+
+        SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+        OMElement resultElement = factory.createOMElement(RESULT_ELEMENT);
+        for (RecipientStatus status : statuses) {
+            OMElement recipientElement = factory.createOMElement(RECIPIENT_ELEMENT);
+            OMElement addressElement = factory.createOMElement(ADDRESS_ELEMENT);
+            addressElement.addChild(factory.createOMText(status.getAddress()));
+            recipientElement.addChild(addressElement);
+            OMElement successElement = factory.createOMElement(SUCCESS_ELEMENT);
+            successElement.addChild(factory.createOMText(Boolean.toString(status.isSuccess())));
+            recipientElement.addChild(successElement);
+            if (status.getError() != null) {
+                OMElement errorElement = factory.createOMElement(ERROR_ELEMENT);
+                errorElement.addChild(factory.createOMText(status.getError()));
+                recipientElement.addChild(errorElement);
+            }
+            resultElement.addChild(recipientElement);
+        }
+        replaceBody(messageContext, resultElement);
+    }
+
+    /**
+     * Sets the tracking ID of an email queued to be sent asynchronously in body
+     *
+     * @param messageContext The message context that is processed
+     * @param trackingId     Tracking ID of the delivery
+     */
+    public static void setTrackingIdResponse(MessageContext messageContext, String trackingId) {
+
+        SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+        OMElement resultElement = factory.createOMElement(RESULT_ELEMENT);
+        OMElement successElement = factory.createOMElement(SUCCESS_ELEMENT);
+        successElement.addChild(factory.createOMText(Boolean.TRUE.toString()));
+        resultElement.addChild(successElement);
+        OMElement trackingIdElement = factory.createOMElement(TRACKING_ID_ELEMENT);
+        trackingIdElement.addChild(factory.createOMText(trackingId));
+        resultElement.addChild(trackingIdElement);
+        replaceBody(messageContext, resultElement);
+    }
+
+    /**
+     * Sets the delivery status of an email sent asynchronously in body
+     *
+     * @param messageContext The message context that is processed
+     * @param trackingId     Tracking ID of the delivery
+     * @param status         Delivery status
+     */
+    public static void setDeliveryStatusResponse(MessageContext messageContext, String trackingId,
+                                                 DeliveryStatus status) {
+
+        SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+        OMElement resultElement = factory.createOMElement(RESULT_ELEMENT);
+        OMElement trackingIdElement = factory.createOMElement(TRACKING_ID_ELEMENT);
+        trackingIdElement.addChild(factory.createOMText(trackingId));
+        resultElement.addChild(trackingIdElement);
+        OMElement statusElement = factory.createOMElement(STATUS_ELEMENT);
+        statusElement.addChild(factory.createOMText(status.getState().name()));
+        resultElement.addChild(statusElement);
+        if (status.getError() != null) {
+            OMElement errorElement = factory.createOMElement(ERROR_ELEMENT);
+            errorElement.addChild(factory.createOMText(status.getError()));
+            resultElement.addChild(errorElement);
+        }
+        replaceBody(messageContext, resultElement);
+    }
+
+    /**
+     * Replaces the content of the body with the given element
+     *
+     * @param messageContext The message context that is processed
+     * @param element        Element to be set in body
+     */
+    private static void replaceBody(MessageContext messageContext, OMElement element) {
+
+        SOAPBody soapBody = messageContext.getEnvelope().getBody();
+        for (Iterator itr = soapBody.getChildElements(); itr.hasNext(); ) {
+            OMElement child = (OMElement) itr.next();
+            child.detach();
+        }
+        soapBody.addChild(element);
+    }
+
     /**
      * Sets the error code and error detail in message
      *
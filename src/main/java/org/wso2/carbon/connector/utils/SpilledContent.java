@@ -0,0 +1,238 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Content written to a temporary file so that it does not have to be held in memory.
+ * <p>
+ * The file is reference counted. The owner of the content holds one reference and each open stream holds another.
+ * The file is deleted once the owner has released the content and all the streams have been closed or fully read.
+ * Files of content that is no longer reachable without having been released are deleted when new content is spilled.
+ */
+public final class SpilledContent {
+
+    private static final Log log = LogFactory.getLog(SpilledContent.class);
+
+    private static final String FILE_PREFIX = "email-attachment-";
+    private static final String FILE_SUFFIX = ".tmp";
+
+    private static final ReferenceQueue<SpilledContent> unreachableContent = new ReferenceQueue<>();
+    private static final Set<CleanupReference> cleanupReferences = ConcurrentHashMap.newKeySet();
+
+    private final Path file;
+    private final long length;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final CleanupReference cleanupReference;
+
+    private SpilledContent(Path file, long length) {
+
+        this.file = file;
+        this.length = length;
+        this.cleanupReference = new CleanupReference(this, file);
+        cleanupReferences.add(cleanupReference);
+    }
+
+    /**
+     * Writes content to a temporary file
+     *
+     * @param head    Content already read from the stream
+     * @param content Remaining content
+     * @return Spilled content
+     * @throws IOException if failed to write the content to the file
+     */
+    static SpilledContent create(byte[] head, InputStream content) throws IOException {
+
+        deleteUnreachableFiles();
+        Path file = Files.createTempFile(FILE_PREFIX, FILE_SUFFIX);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            outputStream.write(head);
+            long total = head.length + IOUtils.copyLarge(content, outputStream);
+            if (log.isDebugEnabled()) {
+                log.debug(format("Spilled %d bytes of content to file: %s", total, file));
+            }
+            return new SpilledContent(file, total);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a new stream to read the content from the file
+     *
+     * @return Content stream
+     * @throws IOException if the content has been released or the file could not be opened
+     */
+    public InputStream openStream() throws IOException {
+
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                throw new IOException("Content has already been released.");
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        try {
+            return new ContentInputStream(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)));
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the length of the content
+     *
+     * @return Length in bytes
+     */
+    public long getLength() {
+
+        return length;
+    }
+
+    /**
+     * Releases a reference to the content, deleting the file once there are no references left
+     */
+    public void release() {
+
+        if (references.decrementAndGet() == 0) {
+            cleanupReferences.remove(cleanupReference);
+            cleanupReference.clear();
+            delete(file);
+        }
+    }
+
+    /**
+     * Deletes the files of content that became unreachable without being released
+     */
+    private static void deleteUnreachableFiles() {
+
+        Reference<? extends SpilledContent> reference;
+        while ((reference = unreachableContent.poll()) != null) {
+            CleanupReference cleanupReference = (CleanupReference) reference;
+            if (cleanupReferences.remove(cleanupReference)) {
+                delete(cleanupReference.file);
+            }
+        }
+    }
+
+    /**
+     * Deletes a file
+     *
+     * @param file File to be deleted
+     */
+    private static void delete(Path file) {
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error(format("Error occurred while deleting file: %s. %s", file, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Stream of the content that releases its reference once fully read or closed
+     */
+    private final class ContentInputStream extends FilterInputStream {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ContentInputStream(InputStream inputStream) {
+
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int value = super.read();
+            if (value == -1) {
+                closeQuietly();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int count = super.read(buffer, offset, length);
+            if (count == -1) {
+                closeQuietly();
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (released.compareAndSet(false, true)) {
+                try {
+                    super.close();
+                } finally {
+                    release();
+                }
+            }
+        }
+
+        private void closeQuietly() {
+
+            try {
+                close();
+            } catch (IOException e) {
+                log.error(format("Error occurred while closing file: %s. %s", file, e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * Reference used to delete the file once the content becomes unreachable
+     */
+    private static final class CleanupReference extends PhantomReference<SpilledContent> {
+
+        private final Path file;
+
+        CleanupReference(SpilledContent content, Path file) {
+
+            super(content, unreachableContent);
+            this.file = file;
+        }
+    }
+}
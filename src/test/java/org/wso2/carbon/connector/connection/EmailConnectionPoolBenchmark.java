@@ -0,0 +1,221 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.String.format;
+
+/**
+ * Contention benchmark for the email connection pool.
+ * <p>
+ * Simulates mediation threads borrowing a connection, using it and returning it to the pool. Validation on borrow
+ * is simulated with a delay similar to the NOOP issued by an IMAP store when checking the connection. The borrow
+ * latency of {@link ConcurrentEmailConnectionPool} is reported against a commons-pool based pool synchronizing
+ * borrow and return, which was the previous implementation.
+ * <p>
+ * Usage: EmailConnectionPoolBenchmark [threads] [iterations per thread] [validation micros] [work micros]
+ */
+public class EmailConnectionPoolBenchmark {
+
+    private static final int DEFAULT_THREADS = 64;
+    private static final int DEFAULT_ITERATIONS = 2000;
+    private static final long DEFAULT_VALIDATION_MICROS = 200;
+    private static final long DEFAULT_WORK_MICROS = 500;
+
+    public static void main(String[] args) throws Exception {
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        long validationMicros = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_VALIDATION_MICROS;
+        long workMicros = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_WORK_MICROS;
+
+        ConnectionConfiguration configuration = new ConnectionConfiguration();
+        configuration.setMaxActiveConnections(threads);
+        configuration.setMaxIdleConnections(threads);
+
+        System.out.println(format("threads=%d iterations=%d validation=%dus work=%dus", threads, iterations,
+                validationMicros, workMicros));
+        // Warm up both implementations before measuring
+        run(new SynchronizedPool(new StubFactory(validationMicros), threads), threads, iterations / 4,
+                workMicros);
+        run(new ConcurrentEmailConnectionPool(new StubFactory(validationMicros), configuration), threads,
+                iterations / 4, workMicros);
+
+        report("synchronized", run(new SynchronizedPool(new StubFactory(validationMicros), threads), threads,
+                iterations, workMicros));
+        report("concurrent", run(new ConcurrentEmailConnectionPool(new StubFactory(validationMicros),
+                configuration), threads, iterations, workMicros));
+    }
+
+    /**
+     * Runs the benchmark against the given pool
+     *
+     * @param pool       pool to be benchmarked
+     * @param threads    number of concurrent borrowers
+     * @param iterations number of borrows per thread
+     * @param workMicros time a connection is held before returning
+     * @return borrow latencies in nanoseconds
+     */
+    private static long[] run(EmailConnectionPool pool, int threads, int iterations, long workMicros)
+            throws Exception {
+
+        long[] latencies = new long[threads * iterations];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int base = t * iterations;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        long begin = System.nanoTime();
+                        Object connection = pool.borrowObject();
+                        latencies[base + i] = System.nanoTime() - begin;
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(workMicros));
+                        pool.returnObject(connection);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (EmailConnectionPoolException e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+        pool.close();
+        return latencies;
+    }
+
+    /**
+     * Prints the percentiles of the latencies
+     *
+     * @param name      name of the implementation
+     * @param latencies borrow latencies in nanoseconds
+     */
+    private static void report(String name, long[] latencies) {
+
+        Arrays.sort(latencies);
+        System.out.println(format("%-14s p50=%8.1fus p90=%8.1fus p99=%8.1fus max=%10.1fus", name,
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1000.0));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1000.0;
+    }
+
+    /**
+     * Factory creating stub connections with a simulated validation delay
+     */
+    private static final class StubFactory implements PoolableObjectFactory {
+
+        private final long validationNanos;
+
+        StubFactory(long validationMicros) {
+
+            this.validationNanos = TimeUnit.MICROSECONDS.toNanos(validationMicros);
+        }
+
+        @Override
+        public Object makeObject() {
+
+            return new Object();
+        }
+
+        @Override
+        public void destroyObject(Object obj) {
+            // Nothing to do here
+        }
+
+        @Override
+        public boolean validateObject(Object obj) {
+
+            LockSupport.parkNanos(validationNanos);
+            return true;
+        }
+
+        @Override
+        public void activateObject(Object obj) {
+            // Nothing to do here
+        }
+
+        @Override
+        public void passivateObject(Object obj) {
+            // Nothing to do here
+        }
+    }
+
+    /**
+     * Pool synchronizing borrow and return on top of commons-pool
+     */
+    private static final class SynchronizedPool extends GenericObjectPool implements EmailConnectionPool {
+
+        SynchronizedPool(PoolableObjectFactory factory, int maxActive) {
+
+            super(factory);
+            this.setMaxActive(maxActive);
+            this.setMaxIdle(maxActive);
+            this.setTestOnBorrow(true);
+        }
+
+        @Override
+        public synchronized Object borrowObject() throws EmailConnectionPoolException {
+
+            try {
+                return super.borrowObject();
+            } catch (Exception e) {
+                throw new EmailConnectionPoolException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public synchronized void returnObject(Object obj) {
+
+            try {
+                super.returnObject(obj);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws EmailConnectionPoolException {
+
+            try {
+                super.close();
+            } catch (Exception e) {
+                throw new EmailConnectionPoolException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.connector.connection;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.connector.exception.EmailConnectionPoolException;
+import org.wso2.carbon.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.connector.pojo.DeliveryStatus;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Tests the email spool without an SMTP server. Emails are either never sent, since no connection can be borrowed
+ * from the pool, or fail to be sent.
+ */
+public class EmailSpoolTest {
+
+    private static final String CONNECTION_NAME = "spoolTest";
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private Path spoolDirectory;
+    private List<EmailSpool> spools;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+
+        spoolDirectory = Files.createTempDirectory("email-spool");
+        spools = new ArrayList<>();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+
+        for (EmailSpool spool : spools) {
+            spool.shutdown();
+        }
+        List<Path> files = new ArrayList<>();
+        Files.walk(spoolDirectory).forEach(files::add);
+        Collections.reverse(files);
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(description = "Emails are appended to a segment and are not failed while no connection is available")
+    public void testAppend() throws Exception {
+
+        DeliveryTracker tracker = new DeliveryTracker();
+        EmailSpool spool = startSpool(getConfiguration(0), new ExhaustedPool(), tracker);
+        String first = spool.submit(createEmail("first@example.com"));
+        String second = spool.submit(createEmail("second@example.com"));
+
+        List<Path> segments = getSegments();
+        Assert.assertEquals(segments.size(), 1, "Emails should be appended to a single segment.");
+        Assert.assertTrue(Files.size(segments.get(0)) > 0, "Segment should hold the appended emails.");
+        // Pool exhaustion is not counted as an attempt, hence the emails are kept even though no retries are allowed
+        waitForRetry(tracker, first);
+        waitForRetry(tracker, second);
+    }
+
+    @Test(description = "Emails that were not sent are recovered when the spool is restarted")
+    public void testRecovery() throws Exception {
+
+        EmailSpool spool = startSpool(getConfiguration(0), new ExhaustedPool(), new DeliveryTracker());
+        String first = spool.submit(createEmail("first@example.com"));
+        String second = spool.submit(createEmail("second@example.org"));
+        spool.shutdown();
+
+        DeliveryTracker tracker = new DeliveryTracker();
+        startSpool(getConfiguration(0), new ExhaustedPool(), tracker);
+        Assert.assertNotEquals(tracker.getStatus(first).getState(), DeliveryStatus.State.UNKNOWN,
+                "First email should be recovered.");
+        Assert.assertNotEquals(tracker.getStatus(second).getState(), DeliveryStatus.State.UNKNOWN,
+                "Second email should be recovered.");
+    }
+
+    @Test(description = "A partially written record at the end of a segment is truncated on recovery")
+    public void testPartialRecordTruncation() throws Exception {
+
+        EmailSpool spool = startSpool(getConfiguration(0), new ExhaustedPool(), new DeliveryTracker());
+        String trackingId = spool.submit(createEmail("first@example.com"));
+        spool.shutdown();
+        Path segment = getSegments().get(0);
+        long size = Files.size(segment);
+        // Length of 100 bytes and checksum, followed by only a part of the payload
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        DeliveryTracker tracker = new DeliveryTracker();
+        startSpool(getConfiguration(0), new ExhaustedPool(), tracker);
+        Assert.assertEquals(Files.size(segment), size, "Partially written record should be truncated.");
+        Assert.assertNotEquals(tracker.getStatus(trackingId).getState(), DeliveryStatus.State.UNKNOWN,
+                "Complete record should be recovered.");
+    }
+
+    @Test(description = "A segment is deleted once all of its emails have been acknowledged")
+    public void testSegmentCompaction() throws Exception {
+
+        ConnectionConfiguration configuration = getConfiguration(0);
+        // Every email rolls the previous one over to a new segment
+        configuration.setSpoolSegmentSize(1);
+        DeliveryTracker tracker = new DeliveryTracker();
+        EmailSpool spool = startSpool(configuration, new FailingPool(), tracker);
+        String first = spool.submit(createEmail("first@example.com"));
+        Path firstSegment = getSegments().get(0);
+        String second = spool.submit(createEmail("second@example.com"));
+
+        // Unexpected errors are counted as attempts, hence the emails fail since no retries are allowed
+        waitForState(tracker, first, DeliveryStatus.State.FAILED);
+        waitForState(tracker, second, DeliveryStatus.State.FAILED);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (Files.exists(firstSegment) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(Files.exists(firstSegment), "Acknowledged segment should be deleted.");
+        Assert.assertEquals(getSegments().size(), 1, "Segment being appended to should be kept.");
+    }
+
+    private EmailSpool startSpool(ConnectionConfiguration configuration, EmailConnectionPool pool,
+                                  DeliveryTracker tracker) throws Exception {
+
+        EmailSpool spool = new EmailSpool(configuration, pool, tracker);
+        spools.add(spool);
+        spool.start();
+        return spool;
+    }
+
+    private ConnectionConfiguration getConfiguration(int maxRetries) throws Exception {
+
+        ConnectionConfiguration configuration = new ConnectionConfiguration();
+        configuration.setConnectionName(CONNECTION_NAME);
+        configuration.setSpoolDirectory(spoolDirectory.toString());
+        configuration.setSpoolMaxRetries(maxRetries);
+        configuration.setSpoolRetryInterval(TimeUnit.MINUTES.toMillis(1));
+        configuration.setAsyncSenderThreads(1);
+        return configuration;
+    }
+
+    private List<Path> getSegments() throws IOException {
+
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDirectory.resolve(CONNECTION_NAME),
+                "segment-*.log")) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static MimeMessage createEmail(String to) throws MessagingException {
+
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Spool test");
+        message.setText("Spooled email");
+        return message;
+    }
+
+    /**
+     * Waits until an email has been put back to the spool after a failed attempt to send it
+     */
+    private static void waitForRetry(DeliveryTracker tracker, String trackingId) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        DeliveryStatus status = tracker.getStatus(trackingId);
+        while ((status.getState() != DeliveryStatus.State.SPOOLED || status.getError() == null)
+                && status.getState() != DeliveryStatus.State.FAILED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = tracker.getStatus(trackingId);
+        }
+        Assert.assertEquals(status.getState(), DeliveryStatus.State.SPOOLED, "Email should remain spooled.");
+        Assert.assertNotNull(status.getError(), "Email should have been attempted.");
+    }
+
+    private static void waitForState(DeliveryTracker tracker, String trackingId, DeliveryStatus.State state)
+            throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (tracker.getStatus(trackingId).getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(tracker.getStatus(trackingId).getState(), state);
+    }
+
+    /**
+     * Pool of which all connections are in use
+     */
+    private static final class ExhaustedPool implements EmailConnectionPool {
+
+        @Override
+        public Object borrowObject() throws EmailConnectionPoolException {
+
+            throw new EmailConnectionPoolException("Pool exhausted.");
+        }
+
+        @Override
+        public void returnObject(Object obj) {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    /**
+     * Pool failing with an unexpected error
+     */
+    private static final class FailingPool implements EmailConnectionPool {
+
+        @Override
+        public Object borrowObject() {
+
+            throw new IllegalStateException("Unexpected error.");
+        }
+
+        @Override
+        public void returnObject(Object obj) {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}